@@ -0,0 +1,355 @@
+package numbers;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DigitWriter class. Streams the digits of rationals to a channel, without
+ * ever building the whole digit string in memory.
+ *
+ * <p>Conversion is divide and conquer: a number is split by the largest
+ * cached power radix^(c * 2^k) below it, and the two halves are converted
+ * recursively, down to a few hundred digits. {@code BigInteger} division is
+ * subquadratic for large operands, so the whole conversion is too. Only the
+ * fractional part of a rational is ever divided out at full size, dyadic
+ * rationals need no division at all there, and hexadecimal splits are plain
+ * shifts.
+ *
+ * <p>Digits go through a single direct buffer, which is reused for the life
+ * of the writer.
+ *
+ * @author Harrison Goldstein
+ */
+public class DigitWriter implements Closeable, Flushable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Numbers of at most this many chunks are converted directly, which is
+   * faster than splitting them any further.
+   */
+  private static final int LEAF_CHUNKS = 16;
+
+  private static final Radix DECIMAL = new Radix(10, 18);
+  private static final Radix HEX = new Radix(16, 15);
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  /**
+   * Whether leading zeros are currently being suppressed.
+   */
+  private boolean leading;
+
+  /**
+   * Constructor.
+   *
+   * @param channel
+   *          channel to write digits to
+   */
+  public DigitWriter(WritableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Static constructor for writing to a file.
+   *
+   * @param path
+   *          file to write to, replacing its contents
+   * @return a writer for path
+   * @throws IOException
+   *           if the file cannot be opened
+   */
+  public static DigitWriter open(Path path) throws IOException {
+    return new DigitWriter(
+             FileChannel.open(path,
+                              StandardOpenOption.CREATE,
+                              StandardOpenOption.WRITE,
+                              StandardOpenOption.TRUNCATE_EXISTING));
+  }
+
+  /**
+   * Writes a rational in decimal.
+   *
+   * @param r
+   *          rational to write
+   * @param scale
+   *          number of decimal places, rounded half up, or if negative, the
+   *          number of trailing zeros to round off before the point
+   * @throws IOException
+   *           if the channel cannot be written to
+   */
+  public void writeDecimal(Rational r, int scale) throws IOException {
+    write(r, scale, DECIMAL);
+  }
+
+  /**
+   * Writes a rational in hexadecimal.
+   *
+   * @param r
+   *          rational to write
+   * @param scale
+   *          number of hexadecimal places, rounded half up, or if negative,
+   *          the number of trailing zeros to round off before the point
+   * @throws IOException
+   *           if the channel cannot be written to
+   */
+  public void writeHex(Rational r, int scale) throws IOException {
+    write(r, scale, HEX);
+  }
+
+  /**
+   * Writes plain text, such as separators between numbers.
+   *
+   * @param s
+   *          ASCII text to write
+   * @throws IOException
+   *           if the channel cannot be written to
+   */
+  public void write(String s) throws IOException {
+    for(int i = 0; i < s.length(); i++) put((byte)s.charAt(i));
+  }
+
+  /**
+   * Helper for writing a rational in any radix.
+   *
+   * @param r
+   *          rational to write
+   * @param scale
+   *          number of places after the point, or if negative, the number
+   *          of trailing zeros to round off before it
+   * @param radix
+   *          radix to write in
+   * @throws IOException
+   *           if the channel cannot be written to
+   */
+  private void write(Rational r, int scale, Radix radix) throws IOException {
+    BigInteger whole;
+    BigInteger frac = BigInteger.ZERO;
+    if(scale < 0) {
+      // Round to a multiple of radix^-scale, as BigDecimal does
+      BigInteger unit = radix.pow(-scale);
+      whole = Rational.create(r.num(), r.den().multiply(unit)).get()
+              .scaledMagnitude(BigInteger.ONE).multiply(unit);
+    } else {
+      BigInteger[] parts = r.num().abs().divideAndRemainder(r.den());
+      whole = parts[0];
+      BigInteger one = radix.pow(scale);
+      frac = Rational.create(parts[1], r.den()).get().scaledMagnitude(one);
+      if(frac.equals(one)) {
+        whole = whole.add(BigInteger.ONE);
+        frac = BigInteger.ZERO;
+      }
+    }
+    if(r.num().signum() < 0 && (whole.signum() != 0 || frac.signum() != 0)) {
+      put((byte)'-');
+    }
+
+    leading = true;
+    emit(whole, radix.maxDigits(whole), radix);
+    if(leading) put((byte)'0');
+    if(scale > 0) {
+      put((byte)'.');
+      leading = false;
+      emit(frac, scale, radix);
+    }
+  }
+
+  /**
+   * Helper for converting a nonnegative integer.
+   *
+   * @param x
+   *          integer to convert
+   * @param digits
+   *          number of digits to write, zero padded on the left
+   * @param radix
+   *          radix to write in
+   * @throws IOException
+   *           if the channel cannot be written to
+   */
+  private void emit(BigInteger x, int digits, Radix radix)
+  throws IOException {
+    if(leading && x.signum() == 0) return;
+    if(digits <= LEAF_CHUNKS * radix.chunk) {
+      emitLeaf(x.toString(radix.radix), digits);
+      return;
+    }
+
+    int k = 0;
+    while((radix.chunk << (k + 1)) < digits) k++;
+    int low = radix.chunk << k;
+    BigInteger[] parts = radix.split(x, k);
+    emit(parts[0], digits - low, radix);
+    emit(parts[1], low, radix);
+  }
+
+  /**
+   * Helper for writing the digits of a small number.
+   *
+   * @param str
+   *          digits of the number
+   * @param digits
+   *          number of digits to write, zero padded on the left
+   * @throws IOException
+   *           if the channel cannot be written to
+   */
+  private void emitLeaf(String str, int digits) throws IOException {
+    if(leading) {
+      leading = false;
+    } else {
+      for(int i = str.length(); i < digits; i++) put((byte)'0');
+    }
+    for(int i = 0; i < str.length(); i++) put((byte)str.charAt(i));
+  }
+
+  /**
+   * Helper for writing a single byte.
+   *
+   * @param b
+   *          byte to write
+   * @throws IOException
+   *           if the channel cannot be written to
+   */
+  private void put(byte b) throws IOException {
+    if(!buffer.hasRemaining()) drain();
+    buffer.put(b);
+  }
+
+  /**
+   * Helper for emptying the buffer into the channel.
+   *
+   * @throws IOException
+   *           if the channel cannot be written to
+   */
+  private void drain() throws IOException {
+    buffer.flip();
+    while(buffer.hasRemaining()) channel.write(buffer);
+    buffer.clear();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    drain();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      drain();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Radix class. Caches the powers used to split numbers for one radix.
+   */
+  private static class Radix {
+
+    final int radix;
+
+    /**
+     * Number of digits in the smallest cached power.
+     */
+    final int chunk;
+
+    /**
+     * powers.get(k) is radix^(chunk * 2^k).
+     */
+    private final List<BigInteger> powers = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param radix
+     *          radix, either 10 or 16
+     * @param chunk
+     *          number of digits in the smallest cached power
+     */
+    Radix(int radix, int chunk) {
+      this.radix = radix;
+      this.chunk = chunk;
+      powers.add(BigInteger.valueOf(radix).pow(chunk));
+    }
+
+    /**
+     * Helper for getting a cached power.
+     *
+     * @param k
+     *          index of the power
+     * @return radix^(chunk * 2^k)
+     */
+    synchronized BigInteger power(int k) {
+      while(powers.size() <= k) {
+        BigInteger last = powers.get(powers.size() - 1);
+        powers.add(last.multiply(last));
+      }
+      return powers.get(k);
+    }
+
+    /**
+     * Power function.
+     *
+     * @param e
+     *          exponent
+     * @return radix^e
+     */
+    BigInteger pow(int e) {
+      if(radix == 16) return BigInteger.ONE.shiftLeft(4 * e);
+      BigInteger result = BigInteger.valueOf(radix).pow(e % chunk);
+      for(int k = 0, q = e / chunk; q > 0; k++, q >>= 1) {
+        if((q & 1) != 0) result = result.multiply(power(k));
+      }
+      return result;
+    }
+
+    /**
+     * Helper for splitting at a cached power.
+     *
+     * @param x
+     *          nonnegative integer to split
+     * @param k
+     *          index of the power to split at
+     * @return {x / radix^(chunk * 2^k), x % radix^(chunk * 2^k)}
+     */
+    BigInteger[] split(BigInteger x, int k) {
+      if(radix == 16) return shift(x, 4 * (chunk << k));
+      return x.divideAndRemainder(power(k));
+    }
+
+    /**
+     * Helper for splitting at a power of two.
+     *
+     * @param x
+     *          nonnegative integer to split
+     * @param bits
+     *          number of low bits to split off
+     * @return {x >> bits, x % 2^bits}
+     */
+    private static BigInteger[] shift(BigInteger x, int bits) {
+      BigInteger hi = x.shiftRight(bits);
+      return new BigInteger[] {hi, x.subtract(hi.shiftLeft(bits))};
+    }
+
+    /**
+     * Helper for bounding the number of digits of an integer.
+     *
+     * @param x
+     *          nonnegative integer
+     * @return a number of digits that is at least enough for x
+     */
+    int maxDigits(BigInteger x) {
+      double bitsPerDigit = Math.log(radix) / Math.log(2);
+      return (int)(x.bitLength() / bitsPerDigit) + 2;
+    }
+  }
+}
@@ -0,0 +1,707 @@
+package numbers;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Expression class. Represents a formula over reals as a syntax tree, so
+ * that it can be simplified before it is turned into a {@code Real}.
+ *
+ * <p>Wrapping a rational in a {@code Real} hides that it is exact, and every
+ * operation on it still pays for precision doubling and bound computations.
+ * Here, subtrees that only involve rationals are folded exactly, a few cheap
+ * algebraic identities are applied, and only what is left is compiled.
+ *
+ * @author Harrison Goldstein
+ */
+public class Expression {
+
+  /**
+   * Kinds of expression nodes.
+   */
+  private enum Kind {
+    CONSTANT, REAL, ADD, MULTIPLY, NEGATE, INVERSE, SQRT, EXP, COS, ARCTAN
+  }
+
+  private final Kind kind;
+  private final Rational value;
+  private final Real real;
+  private final Expression[] args;
+
+  /**
+   * Constructor.
+   *
+   * @param kind
+   *          kind of the node
+   * @param value
+   *          value of a CONSTANT node
+   * @param real
+   *          value of a REAL node
+   * @param args
+   *          operands of the node
+   */
+  private Expression(Kind kind, Rational value, Real real,
+                     Expression... args) {
+    this.kind = kind;
+    this.value = value;
+    this.real = real;
+    this.args = args;
+  }
+
+  /**
+   * Helper constructor for operation nodes.
+   *
+   * @param kind
+   *          kind of the node
+   * @param args
+   *          operands of the node
+   * @return the node
+   */
+  private static Expression node(Kind kind, Expression... args) {
+    return new Expression(kind, null, null, args);
+  }
+
+  /**
+   * Static constructor for exact values.
+   *
+   * @param r
+   *          rational value
+   * @return expression for r
+   */
+  public static Expression constant(Rational r) {
+    return new Expression(Kind.CONSTANT, r.lowestTerms(), null);
+  }
+
+  /**
+   * Static constructor for exact values.
+   *
+   * @param n
+   *          integer value
+   * @return expression for n
+   */
+  public static Expression constant(int n) {
+    return constant(Rational.create(n, 1).get());
+  }
+
+  /**
+   * Static constructor for arbitrary reals.
+   *
+   * @param r
+   *          real value, treated as opaque
+   * @return expression for r
+   */
+  public static Expression of(Real r) {
+    return new Expression(Kind.REAL, null, r);
+  }
+
+  /**
+   * Addition for expressions.
+   *
+   * @param other
+   *          other expression to add
+   * @return sum
+   */
+  public Expression add(Expression other) {
+    return node(Kind.ADD, this, other);
+  }
+
+  /**
+   * Subtraction for expressions.
+   *
+   * @param other
+   *          other expression to subtract
+   * @return difference
+   */
+  public Expression subtract(Expression other) {
+    return add(other.negate());
+  }
+
+  /**
+   * Multiplication for expressions.
+   *
+   * @param other
+   *          other expression to multiply
+   * @return product
+   */
+  public Expression multiply(Expression other) {
+    return node(Kind.MULTIPLY, this, other);
+  }
+
+  /**
+   * Division for expressions.
+   *
+   * @param other
+   *          other expression to divide by
+   * @return quotient
+   */
+  public Expression divide(Expression other) {
+    return multiply(other.inverse());
+  }
+
+  /**
+   * Negation for expressions.
+   *
+   * @return (-1) * this
+   */
+  public Expression negate() {
+    return node(Kind.NEGATE, this);
+  }
+
+  /**
+   * Inversion for expressions.
+   *
+   * @return 1 / this
+   */
+  public Expression inverse() {
+    return node(Kind.INVERSE, this);
+  }
+
+  /**
+   * Square root function.
+   *
+   * @param e
+   *          expression to take the square root of
+   * @return sqrt(e)
+   */
+  public static Expression sqrt(Expression e) {
+    return node(Kind.SQRT, e);
+  }
+
+  /**
+   * Exponential function.
+   *
+   * @param e
+   *          expression to raise e to
+   * @return e^e
+   */
+  public static Expression exp(Expression e) {
+    return node(Kind.EXP, e);
+  }
+
+  /**
+   * Cosine function.
+   *
+   * @param e
+   *          expression to find the cosine of
+   * @return cos(e)
+   */
+  public static Expression cos(Expression e) {
+    return node(Kind.COS, e);
+  }
+
+  /**
+   * Arctan function.
+   *
+   * @param e
+   *          expression to find the arctan of
+   * @return atan(e)
+   */
+  public static Expression arctan(Expression e) {
+    return node(Kind.ARCTAN, e);
+  }
+
+  /**
+   * Exact value, if there is one.
+   *
+   * @return the value of this, or `empty` if it does not fold to a rational
+   */
+  public Optional<Rational> constantValue() {
+    Expression s = simplify();
+    return s.kind == Kind.CONSTANT ? Optional.of(s.value) : Optional.empty();
+  }
+
+  /**
+   * Simplification function. Folds rational subtrees exactly, flattens
+   * nested sums and products, and rewrites x + 0, x - x, x * 1, x * 0, --x,
+   * 1 / (1 / x), sqrt(x) * sqrt(x) for x known to be nonnegative, and
+   * exp(a) * exp(b).
+   *
+   * @return an equivalent, simplified expression
+   */
+  public Expression simplify() {
+    if(args.length == 0) return this;
+    Expression[] simple = new Expression[args.length];
+    for(int i = 0; i < args.length; i++) simple[i] = args[i].simplify();
+
+    switch(kind) {
+    case ADD:
+      return simplifySum(simple);
+    case MULTIPLY:
+      return simplifyProduct(simple);
+    case NEGATE:
+      if(simple[0].kind == Kind.CONSTANT) {
+        return constant(simple[0].value.negate());
+      }
+      if(simple[0].kind == Kind.NEGATE) return simple[0].args[0];
+      break;
+    case INVERSE:
+      if(simple[0].kind == Kind.CONSTANT) {
+        Optional<Rational> inv = simple[0].value.inverse();
+        if(inv.isPresent()) return constant(inv.get());
+      }
+      if(simple[0].kind == Kind.INVERSE) return simple[0].args[0];
+      break;
+    case SQRT:
+      if(simple[0].kind == Kind.CONSTANT) {
+        Optional<Rational> root = exactSqrt(simple[0].value);
+        if(root.isPresent()) return constant(root.get());
+      }
+      break;
+    case EXP:
+    case COS:
+      if(simple[0].isConstant(Rational.ZERO)) return constant(Rational.ONE);
+      break;
+    case ARCTAN:
+      if(simple[0].isConstant(Rational.ZERO)) return constant(Rational.ZERO);
+      break;
+    default:
+      break;
+    }
+    return node(kind, simple);
+  }
+
+  /**
+   * Helper for simplifying sums.
+   *
+   * @param terms
+   *          simplified terms
+   * @return simplified sum
+   */
+  private static Expression simplifySum(Expression[] terms) {
+    Rational constant = Rational.ZERO;
+    List<Expression> rest = new ArrayList<>();
+    for(Expression t : flatten(Kind.ADD, terms)) {
+      Expression negated = t.kind == Kind.NEGATE ? t.args[0] : t.negate();
+      if(t.kind == Kind.CONSTANT) constant = constant.add(t.value);
+      else if(!rest.remove(negated)) rest.add(t);
+    }
+    if(!constant.equals(Rational.ZERO)) rest.add(constant(constant));
+    return rebuild(Kind.ADD, rest, Rational.ZERO);
+  }
+
+  /**
+   * Helper for simplifying products.
+   *
+   * @param factors
+   *          simplified factors
+   * @return simplified product
+   */
+  private static Expression simplifyProduct(Expression[] factors) {
+    Rational constant = Rational.ONE;
+    List<Expression> exponents = new ArrayList<>();
+    List<Expression> roots = new ArrayList<>();
+    List<Expression> rest = new ArrayList<>();
+
+    for(Expression f : flatten(Kind.MULTIPLY, factors)) {
+      if(f.kind == Kind.CONSTANT) {
+        constant = constant.multiply(f.value);
+      } else if(f.kind == Kind.EXP) {
+        exponents.add(f.args[0]);
+      } else if(f.kind == Kind.SQRT && f.args[0].isNonnegative()
+                && roots.contains(f)) {
+        // sqrt(x)^2 = x only for x >= 0, as sqrt is 0 below that
+        roots.remove(f);
+        Expression x = f.args[0];
+        if(x.kind == Kind.CONSTANT) constant = constant.multiply(x.value);
+        else rest.add(x);
+      } else if(f.kind == Kind.SQRT) {
+        roots.add(f);
+      } else {
+        rest.add(f);
+      }
+    }
+
+    if(constant.equals(Rational.ZERO)) return constant(Rational.ZERO);
+    rest.addAll(roots);
+    if(exponents.size() == 1) {
+      rest.add(node(Kind.EXP, exponents.get(0)));
+    } else if(exponents.size() > 1) {
+      Expression e = simplifySum(exponents.toArray(new Expression[0]));
+      if(!e.isConstant(Rational.ZERO)) rest.add(node(Kind.EXP, e));
+    }
+    if(!constant.equals(Rational.ONE)) rest.add(constant(constant));
+    return rebuild(Kind.MULTIPLY, rest, Rational.ONE);
+  }
+
+  /**
+   * Helper for flattening nested sums or products.
+   *
+   * @param kind
+   *          ADD or MULTIPLY
+   * @param operands
+   *          operands to flatten
+   * @return operands, with nodes of the same kind replaced by their operands
+   */
+  private static List<Expression> flatten(Kind kind, Expression[] operands) {
+    List<Expression> result = new ArrayList<>();
+    for(Expression e : operands) {
+      if(e.kind == kind) result.addAll(Arrays.asList(e.args));
+      else result.add(e);
+    }
+    return result;
+  }
+
+  /**
+   * Helper for building a sum or product from simplified operands.
+   *
+   * @param kind
+   *          ADD or MULTIPLY
+   * @param operands
+   *          simplified operands, with at most one constant, last
+   * @param identity
+   *          identity of the operation
+   * @return the node, or its only operand, or identity if there are none
+   */
+  private static Expression rebuild(Kind kind, List<Expression> operands,
+                                    Rational identity) {
+    if(operands.isEmpty()) return constant(identity);
+    if(operands.size() == 1) return operands.get(0);
+    return node(kind, operands.toArray(new Expression[0]));
+  }
+
+  /**
+   * Helper for exact square roots.
+   *
+   * @param r
+   *          rational to take the square root of
+   * @return the square root of r, or `empty` if it is not rational
+   */
+  private static Optional<Rational> exactSqrt(Rational r) {
+    if(r.num().signum() < 0) return Optional.empty();
+    Rational reduced = r.lowestTerms();
+    BigInteger num = Real.isqrt(reduced.num());
+    BigInteger den = Real.isqrt(reduced.den());
+    if(!num.multiply(num).equals(reduced.num())
+       || !den.multiply(den).equals(reduced.den())) {
+      return Optional.empty();
+    }
+    return Rational.create(num, den);
+  }
+
+  /**
+   * Helper for checking for a particular constant.
+   *
+   * @param r
+   *          rational to check for
+   * @return whether this is the constant r
+   */
+  private boolean isConstant(Rational r) {
+    return kind == Kind.CONSTANT && value.equals(r);
+  }
+
+  /**
+   * Helper for checking signs, without approximating anything.
+   *
+   * @return whether this is known to be at least zero
+   */
+  private boolean isNonnegative() {
+    switch(kind) {
+    case CONSTANT:
+      return value.num().signum() >= 0;
+    case EXP:
+    case SQRT:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Compilation function. Simplifies this and turns the result into a real.
+   *
+   * <p>Exact constants are kept out of the precision arithmetic: adding a
+   * constant c asks the rest of the sum for exactly the precision requested,
+   * and multiplying by c only scales the precision by ceil(|c|). Flattened
+   * sums and products become a single {@link Real#sum} or
+   * {@link Real#product}.
+   *
+   * @return a real equal to the value of this
+   * @throws ArithmeticException
+   *           if this divides by something that folds to zero
+   */
+  public Real compile() {
+    if(dividesByZero()) throw new ArithmeticException("division by zero");
+    return simplify().compileSimplified();
+  }
+
+  /**
+   * Helper for finding divisions by zero that are known at fold time. The
+   * subtrees are checked before simplification, since rewrites like x * 0
+   * or 1 / (1 / x) could otherwise hide them.
+   *
+   * @return whether some inverse in this folds to 1 / 0
+   */
+  private boolean dividesByZero() {
+    if(kind == Kind.INVERSE && args[0].simplify().isConstant(Rational.ZERO)) {
+      return true;
+    }
+    for(Expression e : args) {
+      if(e.dividesByZero()) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Helper for compiling a simplified expression.
+   *
+   * @return a real equal to the value of this
+   */
+  private Real compileSimplified() {
+    switch(kind) {
+    case CONSTANT:
+      return new Real(value);
+    case REAL:
+      return real;
+    case ADD: {
+      Rational c = constantOperand();
+      List<Real> rs = compileOperands();
+      Real terms = rs.size() == 1 ? rs.get(0) : Real.sum(rs);
+      return Real.affine(terms, Rational.ONE, c);
+    }
+    case MULTIPLY: {
+      Rational c = constantOperand();
+      List<Real> rs = compileOperands();
+      Real factors = rs.size() == 1 ? rs.get(0) : Real.product(rs);
+      return Real.affine(factors, c, Rational.ZERO);
+    }
+    case NEGATE:
+      return args[0].compileSimplified().negate();
+    case INVERSE:
+      return args[0].compileSimplified().inverse();
+    case SQRT:
+      return Real.sqrt(args[0].compileSimplified());
+    case EXP:
+      return Real.exp(args[0].compileSimplified());
+    case COS:
+      return Real.cos(args[0].compileSimplified());
+    default:
+      return Real.arctan(args[0].compileSimplified());
+    }
+  }
+
+  /**
+   * Helper for compiling the operands of a simplified sum or product.
+   *
+   * @return the compiled operands, leaving out the constant one
+   */
+  private List<Real> compileOperands() {
+    List<Real> result = new ArrayList<>();
+    for(Expression e : args) {
+      if(e.kind != Kind.CONSTANT) result.add(e.compileSimplified());
+    }
+    return result;
+  }
+
+  /**
+   * Helper for finding the constant operand of a simplified sum or product.
+   *
+   * @return the constant operand, or the identity if there is none
+   */
+  private Rational constantOperand() {
+    for(Expression e : args) {
+      if(e.kind == Kind.CONSTANT) return e.value;
+    }
+    return kind == Kind.ADD ? Rational.ZERO : Rational.ONE;
+  }
+
+  /**
+   * Parser for expressions. Understands decimal numbers, the operators
+   * + - * / with the usual precedence, parentheses, the functions sqrt, exp,
+   * cos and arctan, and named variables.
+   *
+   * @param s
+   *          text to parse
+   * @param variables
+   *          values for the variables that may appear in s
+   * @return either the expression, or `empty` if s is malformed, uses an
+   *         unknown name or divides by zero
+   */
+  public static Optional<Expression> parse(String s,
+                                           Map<String, Real> variables) {
+    Parser p = new Parser(s, variables);
+    Optional<Expression> e = p.sum();
+    p.skipSpace();
+    if(p.pos != s.length()) return Optional.empty();
+    return e.filter(expr -> !expr.dividesByZero());
+  }
+
+  /**
+   * Recursive descent parser for expressions.
+   */
+  private static class Parser {
+
+    private final String s;
+    private final Map<String, Real> variables;
+    private int pos = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param s
+     *          text to parse
+     * @param variables
+     *          values of variables
+     */
+    Parser(String s, Map<String, Real> variables) {
+      this.s = s;
+      this.variables = variables;
+    }
+
+    void skipSpace() {
+      while(pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+    }
+
+    boolean eat(char c) {
+      skipSpace();
+      if(pos < s.length() && s.charAt(pos) == c) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    Optional<Expression> sum() {
+      Optional<Expression> acc = product();
+      while(acc.isPresent()) {
+        boolean plus = eat('+');
+        if(!plus && !eat('-')) break;
+        Optional<Expression> rhs = product();
+        if(!rhs.isPresent()) return rhs;
+        acc = Optional.of(plus ? acc.get().add(rhs.get())
+                               : acc.get().subtract(rhs.get()));
+      }
+      return acc;
+    }
+
+    Optional<Expression> product() {
+      Optional<Expression> acc = unary();
+      while(acc.isPresent()) {
+        boolean times = eat('*');
+        if(!times && !eat('/')) break;
+        Optional<Expression> rhs = unary();
+        if(!rhs.isPresent()) return rhs;
+        acc = Optional.of(times ? acc.get().multiply(rhs.get())
+                                : acc.get().divide(rhs.get()));
+      }
+      return acc;
+    }
+
+    Optional<Expression> unary() {
+      if(eat('-')) return unary().map(Expression::negate);
+      return atom();
+    }
+
+    Optional<Expression> atom() {
+      skipSpace();
+      if(pos >= s.length()) return Optional.empty();
+      char c = s.charAt(pos);
+
+      if(eat('(')) {
+        Optional<Expression> e = sum();
+        return eat(')') ? e : Optional.empty();
+      }
+
+      if(Character.isDigit(c)) {
+        int start = pos;
+        while(pos < s.length() && Character.isDigit(s.charAt(pos))) pos++;
+        BigInteger num = new BigInteger(s.substring(start, pos));
+        BigInteger den = BigInteger.ONE;
+        if(pos < s.length() && s.charAt(pos) == '.') {
+          pos++;
+          int fracStart = pos;
+          while(pos < s.length() && Character.isDigit(s.charAt(pos))) pos++;
+          if(pos > fracStart) {
+            num = num.multiply(BigInteger.TEN.pow(pos - fracStart))
+                  .add(new BigInteger(s.substring(fracStart, pos)));
+            den = BigInteger.TEN.pow(pos - fracStart);
+          }
+        }
+        return Rational.create(num, den).map(Expression::constant);
+      }
+
+      if(Character.isLetter(c)) {
+        int start = pos;
+        while(pos < s.length() && Character.isLetterOrDigit(s.charAt(pos))) {
+          pos++;
+        }
+        String name = s.substring(start, pos);
+        if(eat('(')) {
+          Optional<Expression> arg = sum();
+          if(!eat(')')) return Optional.empty();
+          switch(name) {
+          case "sqrt":
+            return arg.map(Expression::sqrt);
+          case "exp":
+            return arg.map(Expression::exp);
+          case "cos":
+            return arg.map(Expression::cos);
+          case "arctan":
+            return arg.map(Expression::arctan);
+          default:
+            return Optional.empty();
+          }
+        }
+        return Optional.ofNullable(variables.get(name)).map(Expression::of);
+      }
+
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public String toString() {
+    switch(kind) {
+    case CONSTANT:
+      return value.toString();
+    case REAL:
+      return "<real>";
+    case ADD:
+    case MULTIPLY: {
+      String op = kind == Kind.ADD ? " + " : " * ";
+      StringBuilder sb = new StringBuilder("(");
+      for(int i = 0; i < args.length; i++) {
+        if(i > 0) sb.append(op);
+        sb.append(args[i]);
+      }
+      return sb.append(")").toString();
+    }
+    case NEGATE:
+      return "-" + args[0];
+    case INVERSE:
+      return "1 / " + args[0];
+    default:
+      return kind.name().toLowerCase() + "(" + args[0] + ")";
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(!(o instanceof Expression)) return false;
+    Expression other = (Expression)o;
+    if(kind != other.kind) return false;
+    switch(kind) {
+    case CONSTANT:
+      return value.equals(other.value);
+    case REAL:
+      return real == other.real;
+    default:
+      return Arrays.equals(args, other.args);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    switch(kind) {
+    case CONSTANT:
+      return value.hashCode();
+    case REAL:
+      return System.identityHashCode(real);
+    default:
+      return 31 * kind.hashCode() + Arrays.hashCode(args);
+    }
+  }
+}
@@ -0,0 +1,566 @@
+package numbers;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Polynomial class. Represents polynomials with {@code Rational}
+ * coefficients, and provides evaluation at reals and certified isolation of
+ * real roots.
+ *
+ * @author Harrison Goldstein
+ */
+public class Polynomial {
+
+  /**
+   * Number of points above which bulk evaluation runs in parallel.
+   */
+  private static final int PARALLEL_THRESHOLD = 256;
+
+  public static final Polynomial ZERO = new Polynomial(new Rational[0]);
+  public static final Polynomial ONE = new Polynomial(
+    new Rational[] {Rational.ONE});
+
+  /**
+   * Coefficients, lowest degree first, with no trailing zeros.
+   */
+  private final Rational[] coeffs;
+
+  /**
+   * Constructor.
+   *
+   * @param coeffs
+   *          coefficients, lowest degree first, not copied
+   */
+  private Polynomial(Rational[] coeffs) {
+    int d = coeffs.length;
+    while(d > 0 && coeffs[d - 1].num().signum() == 0) d--;
+    this.coeffs = d == coeffs.length ? coeffs : Arrays.copyOf(coeffs, d);
+  }
+
+  /**
+   * Static constructor.
+   *
+   * @param coeffs
+   *          coefficients, lowest degree first
+   * @return the polynomial coeffs[0] + coeffs[1] x + coeffs[2] x^2 + ...
+   */
+  public static Polynomial create(Rational... coeffs) {
+    return new Polynomial(coeffs.clone());
+  }
+
+  /**
+   * Getter for the degree.
+   *
+   * @return degree of this, or -1 for the zero polynomial
+   */
+  public int degree() {
+    return coeffs.length - 1;
+  }
+
+  /**
+   * Getter for a coefficient.
+   *
+   * @param i
+   *          power of x
+   * @return the coefficient of x^i
+   */
+  public Rational coefficient(int i) {
+    return i < coeffs.length ? coeffs[i] : Rational.ZERO;
+  }
+
+  /**
+   * Evaluation at a rational, by Horner's rule.
+   *
+   * @param x
+   *          point to evaluate at
+   * @return the value of this at x
+   */
+  public Rational evaluate(Rational x) {
+    Rational acc = Rational.ZERO;
+    for(int i = coeffs.length - 1; i >= 0; i--) {
+      acc = acc.multiply(x).add(coeffs[i]);
+    }
+    return acc;
+  }
+
+  /**
+   * Bulk evaluation at many rationals. Large inputs are evaluated in
+   * parallel, and stop early if the asynchronous approximation this is
+   * part of is cancelled.
+   *
+   * @param xs
+   *          points to evaluate at
+   * @return the values of this at each of xs, in order
+   */
+  public List<Rational> evaluate(List<Rational> xs) {
+    Stream<Rational> points =
+      xs.size() > PARALLEL_THRESHOLD ? xs.parallelStream() : xs.stream();
+    return points.map(Real.inheritCancellation(this::evaluate))
+           .collect(Collectors.toList());
+  }
+
+  /**
+   * Evaluation at a real.
+   *
+   * @param x
+   *          real to evaluate at
+   * @return the value of this at x
+   */
+  public Real evaluate(Real x) {
+    Real[] cs = new Real[coeffs.length];
+    for(int i = 0; i < cs.length; i++) cs[i] = new Real(coeffs[i]);
+    return evaluate(cs, x);
+  }
+
+  /**
+   * Evaluation of a polynomial with real coefficients, by Horner's rule.
+   *
+   * <p>Rather than chaining {@code Real} operations, which multiplies the
+   * precision asked of the operands at every level, this picks a single
+   * working precision m up front. If every coefficient is bounded by c and
+   * |x| + 1 by y, then evaluating everything to within 1/m makes the error
+   * in each term at most (1 + c * d) y^d / m, so
+   * m = n * (d + 1) * (1 + c * d) * y^d is enough for 1/n overall. As with
+   * {@code Real} operations, n is padded to leave room for rounding the
+   * result.
+   *
+   * @param coeffs
+   *          coefficients, lowest degree first
+   * @param x
+   *          real to evaluate at
+   * @return the value of the polynomial at x
+   */
+  public static Real evaluate(Real[] coeffs, Real x) {
+    if(coeffs.length == 0) return Real.ZERO;
+    Real[] cs = coeffs.clone();
+    BigInteger d = BigInteger.valueOf(cs.length - 1);
+
+    BigInteger c = BigInteger.ZERO;
+    for(Real coeff : cs) c = c.max(coeff.approx(BigInteger.ONE).abs().ceil());
+    c = c.add(BigInteger.ONE);
+    BigInteger y = x.approx(BigInteger.ONE).abs().ceil()
+                   .add(new BigInteger("2"));
+    BigInteger scale = d.add(BigInteger.ONE)
+                       .multiply(BigInteger.ONE.add(c.multiply(d)))
+                       .multiply(y.pow(cs.length - 1));
+
+    return new Real(n -> {
+      BigInteger m = Real.pad(n).multiply(scale);
+      Rational xm = x.approx(m);
+      Rational acc = Rational.ZERO;
+      for(int i = cs.length - 1; i >= 0; i--) {
+        acc = acc.multiply(xm).add(cs[i].approx(m));
+      }
+      return Real.round(acc, n);
+    });
+  }
+
+  /**
+   * Negation for polynomials.
+   *
+   * @return (-1) * this
+   */
+  public Polynomial negate() {
+    Rational[] result = new Rational[coeffs.length];
+    for(int i = 0; i < result.length; i++) result[i] = coeffs[i].negate();
+    return new Polynomial(result);
+  }
+
+  /**
+   * Add function for polynomials.
+   *
+   * @param other
+   *          the polynomial to add to this polynomial
+   * @return sum
+   */
+  public Polynomial add(Polynomial other) {
+    Rational[] result =
+      new Rational[Math.max(coeffs.length, other.coeffs.length)];
+    for(int i = 0; i < result.length; i++) {
+      result[i] = coefficient(i).add(other.coefficient(i));
+    }
+    return new Polynomial(result);
+  }
+
+  /**
+   * Subtract function for polynomials.
+   *
+   * @param other
+   *          the polynomial to subtract from this polynomial
+   * @return difference
+   */
+  public Polynomial subtract(Polynomial other) {
+    return add(other.negate());
+  }
+
+  /**
+   * Multiply function for polynomials.
+   *
+   * @param other
+   *          the polynomial to multiply with this polynomial
+   * @return product
+   */
+  public Polynomial multiply(Polynomial other) {
+    if(coeffs.length == 0 || other.coeffs.length == 0) return ZERO;
+    Rational[] result = new Rational[coeffs.length + other.coeffs.length - 1];
+    Arrays.fill(result, Rational.ZERO);
+    for(int i = 0; i < coeffs.length; i++) {
+      for(int j = 0; j < other.coeffs.length; j++) {
+        result[i + j] = result[i + j].add(coeffs[i].multiply(other.coeffs[j]));
+      }
+    }
+    return new Polynomial(result);
+  }
+
+  /**
+   * Division with remainder for polynomials.
+   *
+   * @param other
+   *          the polynomial to divide this polynomial by
+   * @return either {quotient, remainder}, or `empty` if other is zero
+   */
+  public Optional<Polynomial[]> divideAndRemainder(Polynomial other) {
+    if(other.coeffs.length == 0) return Optional.empty();
+    int dOther = other.degree();
+    Rational lead = other.coeffs[dOther];
+
+    Rational[] rem = coeffs.clone();
+    Rational[] quot = new Rational[Math.max(0, coeffs.length - dOther)];
+    for(int i = quot.length - 1; i >= 0; i--) {
+      Rational q = rem[i + dOther].divide(lead).get();
+      quot[i] = q;
+      for(int j = 0; j <= dOther; j++) {
+        rem[i + j] = rem[i + j].subtract(q.multiply(other.coeffs[j]));
+      }
+    }
+    return Optional.of(new Polynomial[] {
+                         new Polynomial(quot), new Polynomial(rem)
+                       });
+  }
+
+  /**
+   * Derivative function.
+   *
+   * @return d/dx of this
+   */
+  public Polynomial derivative() {
+    if(coeffs.length == 0) return ZERO;
+    Rational[] result = new Rational[coeffs.length - 1];
+    for(int i = 0; i < result.length; i++) {
+      result[i] = coeffs[i + 1].multiply(Rational.create(i + 1, 1).get());
+    }
+    return new Polynomial(result);
+  }
+
+  /**
+   * Greatest common divisor for polynomials.
+   *
+   * @param other
+   *          other polynomial
+   * @return monic gcd of this and other, or zero if both are zero
+   */
+  public Polynomial gcd(Polynomial other) {
+    Polynomial a = this;
+    Polynomial b = other;
+    while(b.coeffs.length > 0) {
+      Polynomial r = a.divideAndRemainder(b).get()[1];
+      a = b;
+      b = r.monic();
+    }
+    return a.monic();
+  }
+
+  /**
+   * Helper for normalizing the leading coefficient to one.
+   *
+   * @return this divided by its leading coefficient
+   */
+  private Polynomial monic() {
+    if(coeffs.length == 0) return this;
+    Rational lead = coeffs[coeffs.length - 1];
+    Rational[] result = new Rational[coeffs.length];
+    for(int i = 0; i < result.length; i++) {
+      result[i] = coeffs[i].divide(lead).get();
+    }
+    return new Polynomial(result);
+  }
+
+  /**
+   * Helper for the sign of this at a point.
+   *
+   * @param x
+   *          point to find the sign at
+   * @return -1, 0 or 1 as this is negative, zero or positive at x
+   */
+  private int signAt(Rational x) {
+    return evaluate(x).num().signum();
+  }
+
+  /**
+   * Helper for computing a Sturm sequence.
+   *
+   * @return the Sturm sequence of this
+   */
+  private List<Polynomial> sturmSequence() {
+    List<Polynomial> seq = new ArrayList<>();
+    Polynomial a = this;
+    Polynomial b = derivative();
+    seq.add(a);
+    while(b.coeffs.length > 0) {
+      seq.add(b);
+      Polynomial r = a.divideAndRemainder(b).get()[1].negate();
+      a = b;
+      b = r;
+    }
+    return seq;
+  }
+
+  /**
+   * Helper for counting sign variations of a Sturm sequence.
+   *
+   * @param seq
+   *          Sturm sequence
+   * @param x
+   *          point to count variations at
+   * @return number of sign changes in seq at x, ignoring zeros
+   */
+  private static int variations(List<Polynomial> seq, Rational x) {
+    int count = 0;
+    int last = 0;
+    for(Polynomial p : seq) {
+      int sign = p.signAt(x);
+      if(sign == 0) continue;
+      if(last != 0 && sign != last) count++;
+      last = sign;
+    }
+    return count;
+  }
+
+  /**
+   * Root counting function.
+   *
+   * @param a
+   *          lower end of the interval
+   * @param b
+   *          upper end of the interval
+   * @return number of distinct real roots of this in (a, b]
+   */
+  public int countRoots(Rational a, Rational b) {
+    if(coeffs.length == 0) return 0;
+    List<Polynomial> seq = squareFree().sturmSequence();
+    return variations(seq, a) - variations(seq, b);
+  }
+
+  /**
+   * Helper for removing repeated roots.
+   *
+   * @return a polynomial with the same roots as this, each with multiplicity 1
+   */
+  private Polynomial squareFree() {
+    return divideAndRemainder(gcd(derivative())).get()[0];
+  }
+
+  /**
+   * Root isolation function.
+   *
+   * <p>Uses Sturm sequences to bisect an interval containing every root
+   * (from the Cauchy bound) until each piece contains exactly one. Split
+   * points are chosen so that they are never roots themselves, so the
+   * polynomial has opposite, nonzero signs at the ends of every interval.
+   *
+   * @return disjoint open intervals, in increasing order, each containing
+   *         exactly one distinct real root of this
+   */
+  public List<Interval> isolateRoots() {
+    List<Interval> result = new ArrayList<>();
+    if(coeffs.length < 2) return result;
+
+    Polynomial q = squareFree();
+    List<Polynomial> seq = q.sturmSequence();
+    Rational lead = q.coeffs[q.degree()];
+    Rational bound = Rational.ZERO;
+    for(Rational c : q.coeffs) {
+      Rational ratio = c.divide(lead).get().abs();
+      if(ratio.compareTo(bound) > 0) bound = ratio;
+    }
+    bound = bound.add(Rational.ONE);
+
+    Rational two = Rational.create(2, 1).get();
+    Deque<Interval> pending = new ArrayDeque<>();
+    pending.push(new Interval(bound.negate(), bound));
+    while(!pending.isEmpty()) {
+      Interval i = pending.pop();
+      int count = variations(seq, i.lo) - variations(seq, i.hi);
+      if(count == 0) continue;
+      if(count == 1) {
+        result.add(i);
+        continue;
+      }
+      Rational mid = i.lo.add(i.hi).divide(two).get();
+      while(q.signAt(mid) == 0) mid = i.lo.add(mid).divide(two).get();
+      pending.push(new Interval(mid, i.hi));
+      pending.push(new Interval(i.lo, mid));
+    }
+    return result;
+  }
+
+  /**
+   * Root refinement function.
+   *
+   * <p>Each approximation narrows the isolating interval by bisection, taking
+   * a Newton step whenever it lands close enough to the root to finish. The
+   * narrowest interval found so far is kept, so later approximations start
+   * where earlier ones left off.
+   *
+   * @param interval
+   *          interval containing exactly one root, from isolateRoots
+   * @return the root of this in interval
+   */
+  public Real refine(Interval interval) {
+    Polynomial q = squareFree();
+    Polynomial dq = q.derivative();
+    AtomicReference<Interval> best = new AtomicReference<>(interval);
+    Rational two = Rational.create(2, 1).get();
+
+    return new Real(n -> {
+      Rational width = Rational.create(BigInteger.ONE, n).get();
+      Rational delta = Rational.create(BigInteger.ONE, n.shiftLeft(2)).get();
+      Interval i = best.get();
+      int loSign = q.signAt(i.lo);
+
+      while(i.hi.subtract(i.lo).compareTo(width) > 0) {
+        Rational mid = i.lo.add(i.hi).divide(two).get();
+        int midSign = q.signAt(mid);
+        if(midSign == 0) return mid;
+
+        Optional<Rational> slope = dq.evaluate(mid).inverse();
+        if(slope.isPresent()) {
+          Rational step = mid.subtract(q.evaluate(mid).multiply(slope.get()));
+          // Round to a multiple of delta to keep the numbers small
+          Rational y = Rational.create(
+                         step.num().multiply(n.shiftLeft(2))
+                         .divide(step.den()),
+                         n.shiftLeft(2)).get();
+          Rational lo = y.subtract(delta);
+          Rational hi = y.add(delta);
+          if(i.lo.compareTo(lo) < 0 && hi.compareTo(i.hi) < 0) {
+            int ySign = q.signAt(y);
+            if(ySign == 0) return y;
+            if(q.signAt(lo) == loSign && q.signAt(hi) != loSign) {
+              i = new Interval(lo, hi);
+              break;
+            }
+          }
+        }
+
+        i = midSign == loSign ? new Interval(mid, i.hi)
+                              : new Interval(i.lo, mid);
+        Interval narrowed = i;
+        best.accumulateAndGet(narrowed,
+                              (a, b) -> a.width().compareTo(b.width()) <= 0
+                                        ? a : b);
+      }
+      return i.lo.add(i.hi).divide(two).get();
+    });
+  }
+
+  /**
+   * Root finding function.
+   *
+   * @return every distinct real root of this, in increasing order
+   */
+  public List<Real> roots() {
+    return isolateRoots().stream().map(this::refine)
+           .collect(Collectors.toList());
+  }
+
+  @Override
+  public String toString() {
+    if(coeffs.length == 0) return "0";
+    StringBuilder sb = new StringBuilder();
+    for(int i = coeffs.length - 1; i >= 0; i--) {
+      if(coeffs[i].num().signum() == 0) continue;
+      if(sb.length() > 0) sb.append(" + ");
+      sb.append(coeffs[i]);
+      if(i > 0) sb.append(" x");
+      if(i > 1) sb.append("^").append(i);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(!(o instanceof Polynomial)) return false;
+    return Arrays.equals(coeffs, ((Polynomial)o).coeffs);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 0;
+    for(Rational c : coeffs) hash = 31 * hash + c.lowestTerms().hashCode();
+    return hash;
+  }
+
+  /**
+   * Interval class. Represents an open interval with rational endpoints.
+   */
+  public static class Interval {
+
+    private final Rational lo;
+    private final Rational hi;
+
+    /**
+     * Constructor.
+     *
+     * @param lo
+     *          lower endpoint
+     * @param hi
+     *          upper endpoint
+     */
+    public Interval(Rational lo, Rational hi) {
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    /**
+     * Getter for the lower endpoint.
+     *
+     * @return lower endpoint
+     */
+    public Rational lo() {
+      return lo;
+    }
+
+    /**
+     * Getter for the upper endpoint.
+     *
+     * @return upper endpoint
+     */
+    public Rational hi() {
+      return hi;
+    }
+
+    /**
+     * Width function.
+     *
+     * @return hi - lo
+     */
+    public Rational width() {
+      return hi.subtract(lo);
+    }
+
+    @Override
+    public String toString() {
+      return "(" + lo + ", " + hi + ")";
+    }
+  }
+}
@@ -1,7 +1,12 @@
 package numbers;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 /**
@@ -64,6 +69,51 @@ public class Rational implements Comparable<Rational> {
              new Rational(BigInteger.valueOf(n), BigInteger.valueOf(d)));
   }
 
+  /**
+   * Static constructor. The conversion is exact: the result is the binary
+   * value of d, not the shortest decimal that rounds to it.
+   *
+   * @param d
+   *          value of the rational number
+   * @return either a rational number in lowest terms, or `empty` if d is
+   *         infinite or NaN
+   */
+  public static Optional<Rational> fromDouble(double d) {
+    if(Double.isNaN(d) || Double.isInfinite(d)) return Optional.empty();
+    long bits = Double.doubleToRawLongBits(d);
+    int exponent = (int)((bits >> 52) & 0x7ff);
+    long mantissa = bits & ((1L << 52) - 1);
+    if(exponent == 0) {
+      exponent = -1074;
+    } else {
+      mantissa |= 1L << 52;
+      exponent -= 1075;
+    }
+    if(mantissa == 0) return Optional.of(ZERO);
+
+    // Cancel the factors of two the mantissa shares with the denominator
+    int twos = Long.numberOfTrailingZeros(mantissa);
+    mantissa >>= twos;
+    exponent += twos;
+    BigInteger n = BigInteger.valueOf(bits < 0 ? -mantissa : mantissa);
+    if(exponent >= 0) {
+      return Optional.of(new Rational(n.shiftLeft(exponent), BigInteger.ONE));
+    }
+    return Optional.of(new Rational(n, BigInteger.ONE.shiftLeft(-exponent)));
+  }
+
+  /**
+   * Static constructor from a decimal string, such as "-12.5" or "6.02e23".
+   * See {@code RationalParser} for reading many numbers at once.
+   *
+   * @param s
+   *          a decimal number, with an optional sign and exponent
+   * @return either the exact value of s, or `empty` if s is not a number
+   */
+  public static Optional<Rational> parse(String s) {
+    return RationalParser.parse(s);
+  }
+
   /**
    * Getter for numerator.
    *
@@ -191,16 +241,99 @@ public class Rational implements Comparable<Rational> {
     return num.multiply(new BigInteger("2")).multiply(n).divide(den);
   }
 
+  /**
+   * Helper for fixed point conversions. Rounds half up, like
+   * {@code BigDecimal.ROUND_HALF_UP}, and takes a shift instead of a division
+   * when the denominator is a power of two.
+   *
+   * @param factor
+   *          the fixed point scale, e.g. 10^digits
+   * @return |this| * factor, rounded to the nearest integer
+   */
+  BigInteger scaledMagnitude(BigInteger factor) {
+    BigInteger m = num.abs().multiply(factor);
+    if(den.bitCount() == 1) {
+      int k = den.bitLength() - 1;
+      if(k == 0) return m;
+      return m.add(BigInteger.ONE.shiftLeft(k - 1)).shiftRight(k);
+    }
+    return m.shiftLeft(1).add(den).divide(den.shiftLeft(1));
+  }
+
+  /**
+   * Helper for rounding to a dyadic rational, so that the size of the result
+   * depends only on bits and the magnitude of this.
+   *
+   * @param bits
+   *          number of bits to keep after the binary point
+   * @return the nearest multiple of 2^-bits, rounded half up in magnitude,
+   *         in lowest terms
+   */
+  Rational roundToBits(int bits) {
+    if(den.bitCount() == 1 && den.bitLength() <= bits + 1) {
+      return lowestTerms();
+    }
+    BigInteger m = scaledMagnitude(BigInteger.ONE.shiftLeft(bits));
+    if(m.signum() == 0) return ZERO;
+    int twos = Math.min(m.getLowestSetBit(), bits);
+    m = m.shiftRight(twos);
+    if(num.signum() < 0) m = m.negate();
+    return new Rational(m, BigInteger.ONE.shiftLeft(bits - twos));
+  }
+
   /**
    * Conversion to decimal value.
    *
    * @param scale
-   *          the number of desired decimal places
+   *          the number of desired decimal places, or if negative, the
+   *          number of trailing zeros to round off before the point
    * @return decimal value of this rational
    */
   public BigDecimal decimalValue(int scale) {
-    return (new BigDecimal(num)).divide(
-             new BigDecimal(den), scale, BigDecimal.ROUND_HALF_UP);
+    BigInteger unscaled = scale >= 0
+                          ? scaledMagnitude(BigInteger.TEN.pow(scale))
+                          : new Rational(num, den.multiply(
+                                           BigInteger.TEN.pow(-scale)))
+                          .scaledMagnitude(BigInteger.ONE);
+    if(num.signum() < 0) unscaled = unscaled.negate();
+    return new BigDecimal(unscaled, scale);
+  }
+
+  /**
+   * Conversion to a decimal string, using divide and conquer radix
+   * conversion so that huge values convert in subquadratic time.
+   *
+   * @param scale
+   *          the number of desired decimal places, or if negative, the number
+   *          of trailing zeros to round off before the point
+   * @return decimal representation of this rational, rounded half up
+   */
+  public String toDecimalString(int scale) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try(DigitWriter writer = new DigitWriter(Channels.newChannel(out))) {
+      writer.writeDecimal(this, scale);
+    } catch(IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Conversion to a hexadecimal string.
+   *
+   * @param scale
+   *          the number of desired hexadecimal places, or if negative, the
+   *          number of trailing zeros to round off before the point
+   * @return hexadecimal representation of this rational, rounded half up
+   */
+  public String toHexString(int scale) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try(DigitWriter writer = new DigitWriter(Channels.newChannel(out))) {
+      writer.writeHex(this, scale);
+    } catch(IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new String(out.toByteArray(), StandardCharsets.US_ASCII);
   }
 
   @Override
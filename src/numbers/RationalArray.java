@@ -0,0 +1,642 @@
+package numbers;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * RationalArray class. A growable array of rationals, stored packed.
+ *
+ * <p>Values whose numerator and denominator (in lowest terms) both fit in a
+ * {@code long} are stored inline in two primitive arrays, so they cost 16
+ * bytes each instead of a {@code Rational}, two {@code BigInteger}s and
+ * their magnitude arrays. Anything bigger goes in an overflow region, and
+ * its slot in the primitive arrays points there instead. Overflow slots
+ * freed by storing a small value over a big one are reused, so rewriting
+ * values does not grow the overflow region. The bulk kernels
+ * work directly on the primitive arrays and only fall back to
+ * {@code BigInteger} arithmetic when a {@code long} would overflow.
+ *
+ * @author Harrison Goldstein
+ */
+public class RationalArray {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private static final BigInteger LONG_MIN =
+    BigInteger.valueOf(Long.MIN_VALUE);
+
+  /**
+   * Numerators of inline values, or indices into the overflow region.
+   */
+  private long[] nums;
+
+  /**
+   * Positive denominators of inline values, or 0 to mark an overflow slot.
+   */
+  private long[] dens;
+
+  private int size = 0;
+
+  private final List<BigInteger> bigNums = new ArrayList<>();
+  private final List<BigInteger> bigDens = new ArrayList<>();
+
+  /**
+   * Overflow slots that no index points to any more.
+   */
+  private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+  /**
+   * Constructor.
+   */
+  public RationalArray() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param capacity
+   *          number of values to make room for up front
+   */
+  public RationalArray(int capacity) {
+    nums = new long[Math.max(capacity, 1)];
+    dens = new long[Math.max(capacity, 1)];
+  }
+
+  /**
+   * Static constructor.
+   *
+   * @param rs
+   *          values to store
+   * @return an array holding rs, in order
+   */
+  public static RationalArray of(Collection<Rational> rs) {
+    RationalArray result = new RationalArray(rs.size());
+    for(Rational r : rs) result.append(r);
+    return result;
+  }
+
+  /**
+   * Getter for the number of values.
+   *
+   * @return number of values
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Getter for a single value.
+   *
+   * @param i
+   *          index of the value
+   * @return the value at index i
+   */
+  public Rational get(int i) {
+    checkIndex(i);
+    if(dens[i] == 0) {
+      int slot = (int)nums[i];
+      return Rational.create(bigNums.get(slot), bigDens.get(slot)).get();
+    }
+    return Rational.create(BigInteger.valueOf(nums[i]),
+                           BigInteger.valueOf(dens[i])).get();
+  }
+
+  /**
+   * Setter for a single value.
+   *
+   * @param i
+   *          index of the value
+   * @param r
+   *          new value
+   */
+  public void set(int i, Rational r) {
+    checkIndex(i);
+    store(i, r.num(), r.den());
+  }
+
+  /**
+   * Appends a value.
+   *
+   * @param r
+   *          value to append
+   */
+  public void append(Rational r) {
+    grow(size + 1);
+    store(size, r.num(), r.den());
+    size++;
+  }
+
+  /**
+   * Appends a value given as a fraction of longs, without creating any
+   * objects when it fits inline.
+   *
+   * @param num
+   *          numerator
+   * @param den
+   *          denominator
+   * @throws ArithmeticException
+   *           if den is zero
+   */
+  public void append(long num, long den) {
+    if(den == 0) throw new ArithmeticException("division by zero");
+    grow(size + 1);
+    storeLong(size, num, den);
+    size++;
+  }
+
+  /**
+   * Appends every value of another array.
+   *
+   * @param other
+   *          array to append
+   */
+  public void appendAll(RationalArray other) {
+    // other may be this, so its size has to be read up front
+    int count = other.size;
+    grow(size + count);
+    for(int i = 0; i < count; i++) {
+      if(other.dens[i] == 0) {
+        int slot = (int)other.nums[i];
+        nums[size] = allocate(other.bigNums.get(slot),
+                              other.bigDens.get(slot));
+        dens[size] = 0;
+      } else {
+        nums[size] = other.nums[i];
+        dens[size] = other.dens[i];
+      }
+      size++;
+    }
+  }
+
+  /**
+   * Elementwise addition.
+   *
+   * @param other
+   *          array to add to this array
+   * @return either the elementwise sum, or `empty` if the sizes differ
+   */
+  public Optional<RationalArray> add(RationalArray other) {
+    if(size != other.size) return Optional.empty();
+    RationalArray result = new RationalArray(size);
+    Accumulator acc = new Accumulator();
+    for(int i = 0; i < size; i++) {
+      acc.reset(this, i);
+      acc.add(other, i);
+      acc.appendTo(result);
+    }
+    return Optional.of(result);
+  }
+
+  /**
+   * Elementwise multiplication.
+   *
+   * @param other
+   *          array to multiply with this array
+   * @return either the elementwise product, or `empty` if the sizes differ
+   */
+  public Optional<RationalArray> multiply(RationalArray other) {
+    if(size != other.size) return Optional.empty();
+    RationalArray result = new RationalArray(size);
+    Accumulator acc = new Accumulator();
+    for(int i = 0; i < size; i++) {
+      acc.reset(this, i);
+      acc.multiply(other, i);
+      acc.appendTo(result);
+    }
+    return Optional.of(result);
+  }
+
+  /**
+   * Dot product.
+   *
+   * @param other
+   *          array to take the dot product with
+   * @return either the dot product, or `empty` if the sizes differ
+   */
+  public Optional<Rational> dot(RationalArray other) {
+    if(size != other.size) return Optional.empty();
+    Accumulator sum = new Accumulator();
+    Accumulator term = new Accumulator();
+    for(int i = 0; i < size; i++) {
+      term.reset(this, i);
+      term.multiply(other, i);
+      sum.add(term);
+    }
+    return Optional.of(sum.value());
+  }
+
+  /**
+   * Sum of every value.
+   *
+   * @return sum
+   */
+  public Rational sum() {
+    Accumulator sum = new Accumulator();
+    for(int i = 0; i < size; i++) sum.add(this, i);
+    return sum.value();
+  }
+
+  /**
+   * View of this array as a list. Values are only turned into
+   * {@code Rational}s as they are read, and writes go straight through.
+   *
+   * @return a list backed by this array
+   */
+  public List<Rational> asList() {
+    return new AbstractList<Rational>() {
+      @Override
+      public Rational get(int i) {
+        return RationalArray.this.get(i);
+      }
+
+      @Override
+      public Rational set(int i, Rational r) {
+        Rational old = RationalArray.this.get(i);
+        RationalArray.this.set(i, r);
+        return old;
+      }
+
+      @Override
+      public boolean add(Rational r) {
+        append(r);
+        return true;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Helper for storing a value given as BigIntegers.
+   *
+   * @param i
+   *          index to store at
+   * @param num
+   *          numerator
+   * @param den
+   *          nonzero denominator
+   */
+  private void store(int i, BigInteger num, BigInteger den) {
+    BigInteger gcd = num.gcd(den);
+    if(den.signum() < 0) gcd = gcd.negate();
+    num = num.divide(gcd);
+    den = den.divide(gcd);
+    if(fitsInline(num, den)) {
+      release(i);
+      nums[i] = num.longValue();
+      dens[i] = den.longValue();
+    } else if(i < size && dens[i] == 0) {
+      // Reuse this index's overflow slot
+      bigNums.set((int)nums[i], num);
+      bigDens.set((int)nums[i], den);
+    } else {
+      nums[i] = allocate(num, den);
+      dens[i] = 0;
+    }
+  }
+
+  /**
+   * Helper for getting an overflow slot, reusing a free one if there is any.
+   *
+   * @param num
+   *          numerator to put in the slot
+   * @param den
+   *          denominator to put in the slot
+   * @return index of the slot
+   */
+  private int allocate(BigInteger num, BigInteger den) {
+    Integer slot = freeSlots.poll();
+    if(slot == null) {
+      bigNums.add(num);
+      bigDens.add(den);
+      return bigNums.size() - 1;
+    }
+    bigNums.set(slot, num);
+    bigDens.set(slot, den);
+    return slot;
+  }
+
+  /**
+   * Helper for freeing the overflow slot of an index that is about to be
+   * overwritten inline, if it has one.
+   *
+   * @param i
+   *          index to store at
+   */
+  private void release(int i) {
+    if(i >= size || dens[i] != 0) return;
+    int slot = (int)nums[i];
+    bigNums.set(slot, null);
+    bigDens.set(slot, null);
+    freeSlots.push(slot);
+  }
+
+  /**
+   * Getter for the size of the overflow region, including free slots.
+   *
+   * @return number of overflow slots
+   */
+  int overflowSlots() {
+    return bigNums.size();
+  }
+
+  /**
+   * Helper for storing a value given as longs.
+   *
+   * @param i
+   *          index to store at
+   * @param num
+   *          numerator
+   * @param den
+   *          nonzero denominator
+   */
+  private void storeLong(int i, long num, long den) {
+    if(num == Long.MIN_VALUE || den == Long.MIN_VALUE) {
+      store(i, BigInteger.valueOf(num), BigInteger.valueOf(den));
+      return;
+    }
+    long gcd = gcd(Math.abs(num), Math.abs(den));
+    if(den < 0) gcd = -gcd;
+    release(i);
+    nums[i] = num / gcd;
+    dens[i] = den / gcd;
+  }
+
+  /**
+   * Helper for deciding whether a reduced fraction can be stored inline.
+   * Long.MIN_VALUE is left out so that inline values can always be negated.
+   *
+   * @param num
+   *          numerator
+   * @param den
+   *          positive denominator
+   * @return whether num and den both fit in a long
+   */
+  private static boolean fitsInline(BigInteger num, BigInteger den) {
+    return num.bitLength() < 64 && den.bitLength() < 64
+           && !num.equals(LONG_MIN);
+  }
+
+  /**
+   * Helper for making room.
+   *
+   * @param capacity
+   *          number of values that must fit
+   */
+  private void grow(int capacity) {
+    if(capacity <= nums.length) return;
+    int newCapacity = Math.max(capacity, nums.length + (nums.length >> 1));
+    nums = Arrays.copyOf(nums, newCapacity);
+    dens = Arrays.copyOf(dens, newCapacity);
+  }
+
+  /**
+   * Helper for bounds checks.
+   *
+   * @param i
+   *          index to check
+   */
+  private void checkIndex(int i) {
+    if(i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+    }
+  }
+
+  /**
+   * Greatest common divisor for longs.
+   *
+   * @param a
+   *          nonnegative long
+   * @param b
+   *          nonnegative long
+   * @return gcd of a and b, or 1 if both are zero
+   */
+  private static long gcd(long a, long b) {
+    while(b != 0) {
+      long t = a % b;
+      a = b;
+      b = t;
+    }
+    return a == 0 ? 1 : a;
+  }
+
+  @Override
+  public String toString() {
+    return asList().toString();
+  }
+
+  /**
+   * Accumulator class. A single rational that stays a fraction of longs for
+   * as long as it can, and switches to BigIntegers when it cannot.
+   */
+  private static class Accumulator {
+
+    private long num = 0;
+    private long den = 1;
+    private BigInteger bigNum = null;
+    private BigInteger bigDen = null;
+
+    /**
+     * Sets the accumulator to a value of an array.
+     *
+     * @param a
+     *          array to read from
+     * @param i
+     *          index to read
+     */
+    void reset(RationalArray a, int i) {
+      if(a.dens[i] == 0) {
+        int slot = (int)a.nums[i];
+        bigNum = a.bigNums.get(slot);
+        bigDen = a.bigDens.get(slot);
+      } else {
+        num = a.nums[i];
+        den = a.dens[i];
+        bigNum = null;
+        bigDen = null;
+      }
+    }
+
+    /**
+     * Adds a value of an array.
+     *
+     * @param a
+     *          array to read from
+     * @param i
+     *          index to read
+     */
+    void add(RationalArray a, int i) {
+      if(a.dens[i] == 0) {
+        int slot = (int)a.nums[i];
+        addBig(a.bigNums.get(slot), a.bigDens.get(slot));
+      } else {
+        add(a.nums[i], a.dens[i]);
+      }
+    }
+
+    /**
+     * Adds the value of another accumulator.
+     *
+     * @param other
+     *          accumulator to add
+     */
+    void add(Accumulator other) {
+      if(other.bigNum != null) addBig(other.bigNum, other.bigDen);
+      else add(other.num, other.den);
+    }
+
+    /**
+     * Helper for adding a fraction of longs.
+     *
+     * @param n
+     *          numerator
+     * @param d
+     *          positive denominator
+     */
+    private void add(long n, long d) {
+      if(bigNum == null) {
+        try {
+          long g = gcd(den, d);
+          long newDen = Math.multiplyExact(den / g, d);
+          long newNum = Math.addExact(Math.multiplyExact(num, d / g),
+                                      Math.multiplyExact(n, den / g));
+          if(newNum != Long.MIN_VALUE) {
+            long r = gcd(Math.abs(newNum), newDen);
+            num = newNum / r;
+            den = newDen / r;
+            return;
+          }
+        } catch(ArithmeticException e) {
+          // Fall through to BigIntegers
+        }
+      }
+      addBig(BigInteger.valueOf(n), BigInteger.valueOf(d));
+    }
+
+    /**
+     * Helper for adding a fraction of BigIntegers.
+     *
+     * @param n
+     *          numerator
+     * @param d
+     *          positive denominator
+     */
+    private void addBig(BigInteger n, BigInteger d) {
+      promote();
+      BigInteger newNum = bigNum.multiply(d).add(n.multiply(bigDen));
+      BigInteger newDen = bigDen.multiply(d);
+      BigInteger g = newNum.gcd(newDen);
+      bigNum = newNum.divide(g);
+      bigDen = newDen.divide(g);
+      demote();
+    }
+
+    /**
+     * Multiplies by a value of an array.
+     *
+     * @param a
+     *          array to read from
+     * @param i
+     *          index to read
+     */
+    void multiply(RationalArray a, int i) {
+      if(a.dens[i] == 0 || bigNum != null) {
+        promote();
+        BigInteger n;
+        BigInteger d;
+        if(a.dens[i] == 0) {
+          int slot = (int)a.nums[i];
+          n = a.bigNums.get(slot);
+          d = a.bigDens.get(slot);
+        } else {
+          n = BigInteger.valueOf(a.nums[i]);
+          d = BigInteger.valueOf(a.dens[i]);
+        }
+        BigInteger newNum = bigNum.multiply(n);
+        BigInteger newDen = bigDen.multiply(d);
+        BigInteger g = newNum.gcd(newDen);
+        bigNum = newNum.divide(g);
+        bigDen = newDen.divide(g);
+        demote();
+        return;
+      }
+
+      long n = a.nums[i];
+      long d = a.dens[i];
+      // Cross-reduce first, which keeps products small
+      long g1 = gcd(Math.abs(num), d);
+      long g2 = gcd(Math.abs(n), den);
+      try {
+        long newNum = Math.multiplyExact(num / g1, n / g2);
+        long newDen = Math.multiplyExact(den / g2, d / g1);
+        if(newNum != Long.MIN_VALUE) {
+          num = newNum;
+          den = newDen;
+          return;
+        }
+      } catch(ArithmeticException e) {
+        // Fall through to BigIntegers
+      }
+      bigNum = BigInteger.valueOf(num / g1)
+               .multiply(BigInteger.valueOf(n / g2));
+      bigDen = BigInteger.valueOf(den / g2)
+               .multiply(BigInteger.valueOf(d / g1));
+    }
+
+    /**
+     * Helper for switching to BigIntegers.
+     */
+    private void promote() {
+      if(bigNum != null) return;
+      bigNum = BigInteger.valueOf(num);
+      bigDen = BigInteger.valueOf(den);
+    }
+
+    /**
+     * Helper for switching back to longs when the value fits again.
+     */
+    private void demote() {
+      if(fitsInline(bigNum, bigDen)) {
+        num = bigNum.longValue();
+        den = bigDen.longValue();
+        bigNum = null;
+        bigDen = null;
+      }
+    }
+
+    /**
+     * Appends the value to an array.
+     *
+     * @param a
+     *          array to append to
+     */
+    void appendTo(RationalArray a) {
+      a.grow(a.size + 1);
+      if(bigNum != null) a.store(a.size, bigNum, bigDen);
+      else a.storeLong(a.size, num, den);
+      a.size++;
+    }
+
+    /**
+     * Getter for the value.
+     *
+     * @return the accumulated value
+     */
+    Rational value() {
+      if(bigNum != null) return Rational.create(bigNum, bigDen).get();
+      return Rational.create(BigInteger.valueOf(num),
+                             BigInteger.valueOf(den)).get();
+    }
+  }
+}
@@ -0,0 +1,372 @@
+package numbers;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * RationalMatrix class. Represents an immutable matrix of {@code Rational}s.
+ *
+ * <p>Determinants and linear solves use fraction-free (Bareiss) elimination:
+ * every row is scaled to integers once, and the elimination itself only ever
+ * does exact {@code BigInteger} division, so there is no gcd per entry per
+ * step and the entries stay no bigger than the minors they represent.
+ *
+ * @author Harrison Goldstein
+ */
+public class RationalMatrix {
+
+  /**
+   * Side length of the tiles used for blocked multiplication.
+   */
+  private static final int BLOCK = 32;
+
+  /**
+   * Amount of work (in entry operations) above which loops run in parallel.
+   */
+  private static final long PARALLEL_THRESHOLD = 1L << 12;
+
+  private final Rational[][] entries;
+  private final int rows;
+  private final int cols;
+
+  /**
+   * Constructor.
+   *
+   * @param entries
+   *          entries of the matrix, not copied
+   */
+  private RationalMatrix(Rational[][] entries) {
+    this.entries = entries;
+    this.rows = entries.length;
+    this.cols = entries[0].length;
+  }
+
+  /**
+   * Static constructor.
+   *
+   * @param entries
+   *          entries of the matrix, in row major order
+   * @return either a matrix, or `empty` if entries is empty or ragged
+   */
+  public static Optional<RationalMatrix> create(Rational[][] entries) {
+    if(entries.length == 0 || entries[0].length == 0) return Optional.empty();
+    Rational[][] copy = new Rational[entries.length][];
+    for(int i = 0; i < entries.length; i++) {
+      if(entries[i].length != entries[0].length) return Optional.empty();
+      copy[i] = entries[i].clone();
+    }
+    return Optional.of(new RationalMatrix(copy));
+  }
+
+  /**
+   * Identity matrix.
+   *
+   * @param n
+   *          size of the matrix
+   * @return the n by n identity matrix
+   */
+  public static RationalMatrix identity(int n) {
+    Rational[][] e = new Rational[n][n];
+    for(int i = 0; i < n; i++) {
+      Arrays.fill(e[i], Rational.ZERO);
+      e[i][i] = Rational.ONE;
+    }
+    return new RationalMatrix(e);
+  }
+
+  /**
+   * Getter for the number of rows.
+   *
+   * @return number of rows
+   */
+  public int rows() {
+    return rows;
+  }
+
+  /**
+   * Getter for the number of columns.
+   *
+   * @return number of columns
+   */
+  public int cols() {
+    return cols;
+  }
+
+  /**
+   * Getter for a single entry.
+   *
+   * @param i
+   *          row of the entry
+   * @param j
+   *          column of the entry
+   * @return the entry at (i, j)
+   */
+  public Rational get(int i, int j) {
+    return entries[i][j];
+  }
+
+  /**
+   * Add function for matrices.
+   *
+   * @param other
+   *          the matrix to add to this matrix
+   * @return either the sum, or `empty` if the dimensions differ
+   */
+  public Optional<RationalMatrix> add(RationalMatrix other) {
+    if(rows != other.rows || cols != other.cols) return Optional.empty();
+    Rational[][] e = new Rational[rows][cols];
+    for(int i = 0; i < rows; i++) {
+      for(int j = 0; j < cols; j++) {
+        e[i][j] = entries[i][j].add(other.entries[i][j]);
+      }
+    }
+    return Optional.of(new RationalMatrix(e));
+  }
+
+  /**
+   * Multiply function for matrices.
+   *
+   * <p>The rows of this and the columns of other are scaled to integers, so
+   * that the inner products are sums of plain {@code BigInteger} products
+   * and each result entry is only reduced once. The product itself is
+   * blocked, and large products are split across cores by tiles of the
+   * result.
+   *
+   * @param other
+   *          the matrix to multiply this matrix by, on the right
+   * @return either the product, or `empty` if the dimensions do not match
+   */
+  public Optional<RationalMatrix> multiply(RationalMatrix other) {
+    if(cols != other.rows) return Optional.empty();
+
+    BigInteger[] rowScale = new BigInteger[rows];
+    BigInteger[][] a = new BigInteger[rows][];
+    for(int i = 0; i < rows; i++) {
+      rowScale[i] = denominatorLcm(entries[i]);
+      a[i] = scale(entries[i], rowScale[i]);
+    }
+
+    int m = other.cols;
+    BigInteger[] colScale = new BigInteger[m];
+    BigInteger[][] b = new BigInteger[cols][m];
+    for(int j = 0; j < m; j++) {
+      Rational[] column = new Rational[cols];
+      for(int k = 0; k < cols; k++) column[k] = other.entries[k][j];
+      colScale[j] = denominatorLcm(column);
+      BigInteger[] scaled = scale(column, colScale[j]);
+      for(int k = 0; k < cols; k++) b[k][j] = scaled[k];
+    }
+
+    BigInteger[][] c = new BigInteger[rows][m];
+    for(BigInteger[] row : c) Arrays.fill(row, BigInteger.ZERO);
+
+    // Tiles of the result are independent, so they can run in parallel
+    int rowBlocks = (rows + BLOCK - 1) / BLOCK;
+    int colBlocks = (m + BLOCK - 1) / BLOCK;
+    IntStream tiles = IntStream.range(0, rowBlocks * colBlocks);
+    if((long)rows * cols * m > PARALLEL_THRESHOLD) tiles = tiles.parallel();
+    tiles.forEach(t -> {
+      int ib = t / colBlocks * BLOCK;
+      int jb = t % colBlocks * BLOCK;
+      int iEnd = Math.min(rows, ib + BLOCK);
+      int jEnd = Math.min(m, jb + BLOCK);
+      for(int kb = 0; kb < cols; kb += BLOCK) {
+        int kEnd = Math.min(cols, kb + BLOCK);
+        for(int i = ib; i < iEnd; i++) {
+          for(int k = kb; k < kEnd; k++) {
+            BigInteger aik = a[i][k];
+            if(aik.signum() == 0) continue;
+            for(int j = jb; j < jEnd; j++) {
+              c[i][j] = c[i][j].add(aik.multiply(b[k][j]));
+            }
+          }
+        }
+      }
+    });
+
+    Rational[][] e = new Rational[rows][m];
+    for(int i = 0; i < rows; i++) {
+      for(int j = 0; j < m; j++) {
+        e[i][j] = Rational.create(c[i][j], rowScale[i].multiply(colScale[j]))
+                  .get().lowestTerms();
+      }
+    }
+    return Optional.of(new RationalMatrix(e));
+  }
+
+  /**
+   * Determinant function.
+   *
+   * @return either the determinant, or `empty` if this is not square
+   */
+  public Optional<Rational> determinant() {
+    if(rows != cols) return Optional.empty();
+
+    BigInteger scale = BigInteger.ONE;
+    BigInteger[][] m = new BigInteger[rows][];
+    for(int i = 0; i < rows; i++) {
+      BigInteger rowScale = denominatorLcm(entries[i]);
+      scale = scale.multiply(rowScale);
+      m[i] = scale(entries[i], rowScale);
+    }
+
+    int sign = bareiss(m, rows);
+    if(sign == 0) return Optional.of(Rational.ZERO);
+    BigInteger det = m[rows - 1][rows - 1];
+    if(sign < 0) det = det.negate();
+    return Optional.of(Rational.create(det, scale).get().lowestTerms());
+  }
+
+  /**
+   * Linear solver. Finds x such that this * x = b.
+   *
+   * @param b
+   *          right hand side of the system
+   * @return either the unique solution, or `empty` if this is not square,
+   *         b has the wrong length, or the system is singular
+   */
+  public Optional<Rational[]> solve(Rational[] b) {
+    if(rows != cols || b.length != rows) return Optional.empty();
+
+    // Scaling a row of the augmented system does not change its solution
+    BigInteger[][] m = new BigInteger[rows][];
+    for(int i = 0; i < rows; i++) {
+      Rational[] row = Arrays.copyOf(entries[i], cols + 1);
+      row[cols] = b[i];
+      m[i] = scale(row, denominatorLcm(row));
+    }
+
+    if(bareiss(m, rows) == 0) return Optional.empty();
+
+    // With d the last pivot, d * x is integral (Cramer's rule), so back
+    // substitution can stay fraction-free as well.
+    BigInteger d = m[rows - 1][rows - 1];
+    BigInteger[] y = new BigInteger[rows];
+    for(int i = rows - 1; i >= 0; i--) {
+      BigInteger acc = d.multiply(m[i][cols]);
+      for(int j = i + 1; j < cols; j++) {
+        acc = acc.subtract(m[i][j].multiply(y[j]));
+      }
+      y[i] = acc.divide(m[i][i]);
+    }
+
+    Rational[] x = new Rational[rows];
+    for(int i = 0; i < rows; i++) {
+      x[i] = Rational.create(y[i], d).get().lowestTerms();
+    }
+    return Optional.of(x);
+  }
+
+  /**
+   * Fraction-free Gaussian elimination, in place.
+   *
+   * <p>Afterwards the first n columns of m are upper triangular, and the
+   * last pivot m[n - 1][n - 1] is the determinant of the leading n by n
+   * block, up to the returned sign.
+   *
+   * @param m
+   *          integer matrix with n rows and at least n columns
+   * @param n
+   *          number of rows (and of columns to eliminate)
+   * @return the sign introduced by row swaps, or 0 if the block is singular
+   */
+  private static int bareiss(BigInteger[][] m, int n) {
+    int width = m[0].length;
+    int sign = 1;
+    BigInteger prev = BigInteger.ONE;
+
+    for(int k = 0; k < n; k++) {
+      if(m[k][k].signum() == 0) {
+        int p = k + 1;
+        while(p < n && m[p][k].signum() == 0) p++;
+        if(p == n) return 0;
+        BigInteger[] tmp = m[k];
+        m[k] = m[p];
+        m[p] = tmp;
+        sign = -sign;
+      }
+
+      int step = k;
+      BigInteger divisor = prev;
+      IntStream below = IntStream.range(k + 1, n);
+      if((long)(n - k) * (width - k) > PARALLEL_THRESHOLD) {
+        below = below.parallel();
+      }
+      below.forEach(i -> {
+        BigInteger[] pivotRow = m[step];
+        BigInteger[] row = m[i];
+        BigInteger pivot = pivotRow[step];
+        BigInteger lead = row[step];
+        for(int j = step + 1; j < width; j++) {
+          row[j] = row[j].multiply(pivot)
+                   .subtract(lead.multiply(pivotRow[j]))
+                   .divide(divisor);
+        }
+        row[step] = BigInteger.ZERO;
+      });
+      prev = m[k][k];
+    }
+    return sign;
+  }
+
+  /**
+   * Helper for finding a common denominator.
+   *
+   * @param row
+   *          rationals to find a common denominator for
+   * @return least common multiple of the denominators in row
+   */
+  private static BigInteger denominatorLcm(Rational[] row) {
+    BigInteger lcm = BigInteger.ONE;
+    for(Rational r : row) {
+      BigInteger den = r.den();
+      lcm = lcm.divide(lcm.gcd(den)).multiply(den);
+    }
+    return lcm;
+  }
+
+  /**
+   * Helper for scaling rationals to integers.
+   *
+   * @param row
+   *          rationals to scale
+   * @param scale
+   *          a common multiple of the denominators in row
+   * @return row multiplied by scale, as integers
+   */
+  private static BigInteger[] scale(Rational[] row, BigInteger scale) {
+    BigInteger[] result = new BigInteger[row.length];
+    for(int j = 0; j < row.length; j++) {
+      result[j] = row[j].num().multiply(scale.divide(row[j].den()));
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = 0; i < rows; i++) {
+      if(i > 0) sb.append(", ");
+      sb.append(Arrays.toString(entries[i]));
+    }
+    return sb.append("]").toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(!(o instanceof RationalMatrix)) return false;
+    RationalMatrix other = (RationalMatrix)o;
+    return Arrays.deepEquals(entries, other.entries);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 31 * rows + cols;
+    for(Rational[] row : entries) {
+      for(Rational r : row) hash = 31 * hash + r.lowestTerms().hashCode();
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,388 @@
+package numbers;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * RationalParser class. Reads decimal and scientific numbers, such as
+ * {@code -12.5} or {@code 6.02e23}, as exact rationals.
+ *
+ * <p>Digits are accumulated straight into {@code long}s, 18 at a time, so
+ * short numbers are parsed without allocating anything and land in a
+ * {@code RationalArray} inline. Only numbers with more digits, or powers of
+ * ten too big for a {@code long}, go through {@code BigInteger}.
+ *
+ * <p>Numbers in bulk input are separated by whitespace, commas or
+ * semicolons. The parallel variants cut the input into chunks at separators
+ * and parse the chunks on separate cores.
+ *
+ * @author Harrison Goldstein
+ */
+public class RationalParser {
+
+  /**
+   * Number of characters per chunk when parsing in parallel.
+   */
+  private static final int CHUNK = 1 << 20;
+
+  /**
+   * Largest region of a file that is mapped at once.
+   */
+  private static final int REGION = 1 << 30;
+
+  /**
+   * Exponents of nonzero numbers beyond this are rejected rather than
+   * expanded.
+   */
+  private static final int MAX_EXPONENT = 1 << 24;
+
+  /**
+   * Number of digits that always fit in a long.
+   */
+  private static final int LONG_DIGITS = 18;
+
+  private static final long[] POW10 = new long[LONG_DIGITS + 1];
+  static {
+    POW10[0] = 1;
+    for(int i = 1; i <= LONG_DIGITS; i++) POW10[i] = 10 * POW10[i - 1];
+  }
+
+  private static final BigInteger CHUNK_SCALE =
+    BigInteger.valueOf(POW10[LONG_DIGITS]);
+
+  private RationalParser() {
+  }
+
+  /**
+   * Parses a single number.
+   *
+   * @param s
+   *          a decimal number, with an optional sign and exponent
+   * @return either the exact value of s, or `empty` if s is not a number
+   */
+  public static Optional<Rational> parse(CharSequence s) {
+    RationalArray out = new RationalArray(1);
+    if(!parseNumber(s, 0, s.length(), out)) return Optional.empty();
+    return Optional.of(out.get(0));
+  }
+
+  /**
+   * Parses every number in some text.
+   *
+   * @param s
+   *          numbers, separated by whitespace, commas or semicolons
+   * @return either the numbers, or `empty` if any of them is malformed
+   */
+  public static Optional<RationalArray> parseAll(CharSequence s) {
+    RationalArray out = new RationalArray();
+    if(!parseRange(s, 0, s.length(), out)) return Optional.empty();
+    return Optional.of(out);
+  }
+
+  /**
+   * Parses every number in a buffer of ASCII text. The buffer's position is
+   * not changed.
+   *
+   * @param buffer
+   *          numbers, separated by whitespace, commas or semicolons
+   * @return either the numbers, or `empty` if any of them is malformed
+   */
+  public static Optional<RationalArray> parseAll(ByteBuffer buffer) {
+    return parseAll(new Ascii(buffer));
+  }
+
+  /**
+   * Parses every number in some text, splitting the work across cores.
+   *
+   * @param s
+   *          numbers, separated by whitespace, commas or semicolons
+   * @return either the numbers, in order, or `empty` if any of them is
+   *         malformed
+   */
+  public static Optional<RationalArray> parallelParseAll(CharSequence s) {
+    List<Integer> cuts = new ArrayList<>();
+    cuts.add(0);
+    for(int i = CHUNK; i < s.length(); i += CHUNK) {
+      while(i < s.length() && !isSeparator(s.charAt(i))) i++;
+      cuts.add(i);
+    }
+    cuts.add(s.length());
+
+    List<Optional<RationalArray>> parts =
+      IntStream.range(0, cuts.size() - 1).parallel()
+      .mapToObj(k -> {
+        RationalArray part = new RationalArray();
+        if(!parseRange(s, cuts.get(k), cuts.get(k + 1), part)) {
+          return Optional.<RationalArray>empty();
+        }
+        return Optional.of(part);
+      })
+      .collect(Collectors.toList());
+
+    RationalArray out = new RationalArray();
+    for(Optional<RationalArray> part : parts) {
+      if(!part.isPresent()) return Optional.empty();
+      out.appendAll(part.get());
+    }
+    return Optional.of(out);
+  }
+
+  /**
+   * Parses every number in a buffer of ASCII text, splitting the work
+   * across cores. The buffer's position is not changed.
+   *
+   * @param buffer
+   *          numbers, separated by whitespace, commas or semicolons
+   * @return either the numbers, in order, or `empty` if any of them is
+   *         malformed
+   */
+  public static Optional<RationalArray> parallelParseAll(ByteBuffer buffer) {
+    return parallelParseAll(new Ascii(buffer));
+  }
+
+  /**
+   * Parses every number in an ASCII file, mapping it into memory a region
+   * at a time and splitting the work across cores.
+   *
+   * @param path
+   *          file of numbers, separated by whitespace, commas or semicolons
+   * @return either the numbers, in order, or `empty` if any of them is
+   *         malformed
+   * @throws IOException
+   *           if the file cannot be read
+   */
+  public static Optional<RationalArray> parseFile(Path path)
+  throws IOException {
+    RationalArray out = new RationalArray();
+    try(FileChannel channel = FileChannel.open(path,
+                                                StandardOpenOption.READ)) {
+      long size = channel.size();
+      long pos = 0;
+      while(pos < size) {
+        int length = (int)Math.min(REGION, size - pos);
+        ByteBuffer region =
+          channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+        if(pos + length < size) {
+          // Stop at the last separator, so no number spans two regions
+          while(length > 0 && !isSeparator((char)region.get(length - 1))) {
+            length--;
+          }
+          if(length == 0) return Optional.empty();
+          region.limit(length);
+        }
+        Optional<RationalArray> part = parallelParseAll(region);
+        if(!part.isPresent()) return Optional.empty();
+        out.appendAll(part.get());
+        pos += length;
+      }
+    }
+    return Optional.of(out);
+  }
+
+  /**
+   * Helper for parsing every number in part of some text.
+   *
+   * @param s
+   *          text to parse
+   * @param start
+   *          index to start at
+   * @param end
+   *          index to stop before
+   * @param out
+   *          array to append the numbers to
+   * @return whether every number was well formed
+   */
+  private static boolean parseRange(CharSequence s, int start, int end,
+                                    RationalArray out) {
+    int i = start;
+    while(true) {
+      while(i < end && isSeparator(s.charAt(i))) i++;
+      if(i == end) return true;
+      int tokenStart = i;
+      while(i < end && !isSeparator(s.charAt(i))) i++;
+      if(!parseNumber(s, tokenStart, i, out)) return false;
+    }
+  }
+
+  /**
+   * Helper for parsing a single number.
+   *
+   * @param s
+   *          text to parse
+   * @param start
+   *          index of the first character of the number
+   * @param end
+   *          index after the last character of the number
+   * @param out
+   *          array to append the number to
+   * @return whether the number was well formed
+   */
+  private static boolean parseNumber(CharSequence s, int start, int end,
+                                     RationalArray out) {
+    int i = start;
+    boolean negative = false;
+    if(i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+      negative = s.charAt(i) == '-';
+      i++;
+    }
+
+    // The mantissa is big * 10^chunkLength + chunk
+    BigInteger big = null;
+    long chunk = 0;
+    int chunkLength = 0;
+    boolean anyDigits = false;
+    boolean point = false;
+    long exponent = 0;
+    for(; i < end; i++) {
+      char c = s.charAt(i);
+      if(c == '.' && !point) {
+        point = true;
+        continue;
+      }
+      if(c < '0' || c > '9') break;
+      anyDigits = true;
+      if(point) exponent--;
+      if(chunk == 0 && big == null && c == '0') continue;
+      if(chunkLength == LONG_DIGITS) {
+        big = big == null ? BigInteger.valueOf(chunk)
+              : big.multiply(CHUNK_SCALE).add(BigInteger.valueOf(chunk));
+        chunk = 0;
+        chunkLength = 0;
+      }
+      chunk = 10 * chunk + (c - '0');
+      chunkLength++;
+    }
+    if(!anyDigits) return false;
+
+    if(i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+      i++;
+      boolean negativeExponent = false;
+      if(i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+        negativeExponent = s.charAt(i) == '-';
+        i++;
+      }
+      if(i == end) return false;
+      long e = 0;
+      for(; i < end; i++) {
+        char c = s.charAt(i);
+        if(c < '0' || c > '9') return false;
+        // Saturate, since the exponent of zero can be anything
+        if(e <= MAX_EXPONENT) e = 10 * e + (c - '0');
+      }
+      exponent += negativeExponent ? -e : e;
+    }
+    if(i != end) return false;
+    if(chunk == 0 && big == null) {
+      out.append(0, 1);
+      return true;
+    }
+    if(Math.abs(exponent) > MAX_EXPONENT) return false;
+    int scale = (int)exponent;
+
+    if(big == null) {
+      long n = negative ? -chunk : chunk;
+      if(scale >= 0 && scale <= LONG_DIGITS
+         && chunk <= Long.MAX_VALUE / POW10[scale]) {
+        out.append(n * POW10[scale], 1);
+        return true;
+      }
+      if(scale < 0 && -scale <= LONG_DIGITS) {
+        out.append(n, POW10[-scale]);
+        return true;
+      }
+      big = BigInteger.valueOf(chunk);
+    } else {
+      big = big.multiply(BigInteger.valueOf(POW10[chunkLength]))
+            .add(BigInteger.valueOf(chunk));
+    }
+
+    if(negative) big = big.negate();
+    if(scale >= 0) {
+      out.append(Rational.create(big.multiply(BigInteger.TEN.pow(scale)),
+                                 BigInteger.ONE).get());
+    } else {
+      out.append(Rational.create(big, BigInteger.TEN.pow(-scale)).get());
+    }
+    return true;
+  }
+
+  /**
+   * Helper for recognizing separators.
+   *
+   * @param c
+   *          character to check
+   * @return whether c separates numbers
+   */
+  private static boolean isSeparator(char c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ','
+           || c == ';';
+  }
+
+  /**
+   * Ascii class. Views a buffer of ASCII bytes as characters, without
+   * decoding or copying it.
+   */
+  private static class Ascii implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer
+     *          buffer to view, from its position to its limit
+     */
+    Ascii(ByteBuffer buffer) {
+      this(buffer, buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param buffer
+     *          buffer to view
+     * @param offset
+     *          absolute index of the first byte
+     * @param length
+     *          number of bytes
+     */
+    private Ascii(ByteBuffer buffer, int offset, int length) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int i) {
+      return (char)(buffer.get(offset + i) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new Ascii(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(length);
+      for(int i = 0; i < length; i++) sb.append(charAt(i));
+      return sb.toString();
+    }
+  }
+}
@@ -2,19 +2,75 @@ package numbers;
 
 import java.math.BigInteger;
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Real class. Represents real as defined by Bishop and Bridges.
  *
+ * <p>Reals built from arithmetic on other reals, or from sqrt, cos, exp and
+ * arctan, are kept as operation nodes rather than nested closures, and
+ * {@link #approx(BigInteger)} walks them with an explicit stack, so
+ * arbitrarily deep chains of operations never overflow the Java call stack.
+ * Chains of exact scalings and shifts are also collapsed as they are built,
+ * so a recurrence like x = a * x + b stays a single node however many steps
+ * it runs for, and chains of sums or of products are merged into n-ary
+ * nodes, so the precision they ask of their operands grows linearly rather
+ * than exponentially with their length.
+ *
+ * <p>Every operation rounds its approximations to a dyadic rational with
+ * about as many bits as the precision asked for, and asks its operands for
+ * slightly more precision to make room for that rounding. So the sizes of
+ * intermediate values are proportional to the precision, rather than to
+ * the depth of the computation.
+ *
  * @author Harrison Goldstein
  */
 public class Real {
 
-  private Function<BigInteger, Rational> val;
+  /**
+   * Function giving approximations directly, for reals that are not
+   * operation nodes.
+   */
+  private final Function<BigInteger, Rational> val;
+
+  /**
+   * Operation this real is the result of, or null.
+   */
+  private final Node node;
+
+  /**
+   * Exact value of this real, if it is known to be rational.
+   */
+  private final Rational exact;
+
+  /**
+   * Cancellation flag of the asynchronous approximation the current thread
+   * is working for, if any.
+   */
+  private static final ThreadLocal<AtomicBoolean> CANCELLED =
+    new ThreadLocal<>();
+
+  /**
+   * Largest number of operands a sum or product node gets by absorbing the
+   * operands of nested sums or products. Past this, nodes nest again, so
+   * repeatedly doubling a real cannot build exponentially large nodes.
+   */
+  private static final int MAX_OPERANDS = 1 << 12;
 
-  public static Real ZERO = new Real(n -> Rational.ZERO);
-  public static Real ONE = new Real(n -> Rational.ONE);
+  public static Real ZERO = new Real(Rational.ZERO);
+  public static Real ONE = new Real(Rational.ONE);
   public static Real E = exp(Real.ONE);
   public static Real PI =
     arctan(Real.ONE).multiply(new Real(Rational.create(4, 1).get()));
@@ -27,6 +83,8 @@ public class Real {
    */
   public Real(Rational r) {
     val = n -> r;
+    node = null;
+    exact = r;
   }
 
   /**
@@ -37,6 +95,20 @@ public class Real {
    */
   public Real(Function<BigInteger, Rational> f) {
     val = f;
+    node = null;
+    exact = null;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param node
+   *          operation representing the real
+   */
+  private Real(Node node) {
+    val = null;
+    this.node = node;
+    exact = null;
   }
 
   /**
@@ -47,7 +119,109 @@ public class Real {
    * @return an approximation of this to within 1/n
    */
   public Rational approx(BigInteger n) {
-    return val.apply(n);
+    if(node == null) return val.apply(n);
+    return evaluate(this, n);
+  }
+
+  /**
+   * Evaluator for operation nodes.
+   *
+   * <p>Walks the tree of operations under root depth first, keeping the
+   * pending operations on an explicit stack instead of the call stack. Each
+   * frame asks its operands for the precision its operation needs, and
+   * combines their approximations once they are all in.
+   *
+   * @param root
+   *          real to approximate, which must be an operation node
+   * @param n
+   *          approximation limit
+   * @return an approximation of root to within 1/n
+   */
+  private static Rational evaluate(Real root, BigInteger n) {
+    Deque<Frame> stack = new ArrayDeque<>();
+    stack.push(new Frame(root.node, n));
+    Rational result = null;
+
+    while(true) {
+      checkCancelled();
+      Frame top = stack.peek();
+      if(result != null) {
+        top.args[top.next++] = result;
+        result = null;
+      }
+
+      if(top.next < top.args.length) {
+        Real operand = top.node.operands[top.next];
+        if(operand.node == null) {
+          top.args[top.next++] = operand.val.apply(top.demand);
+        } else {
+          stack.push(new Frame(operand.node, top.demand));
+        }
+      } else {
+        stack.pop();
+        result = round(top.node.combine(top.args, top.n), top.n);
+        if(stack.isEmpty()) return result;
+      }
+    }
+  }
+
+  /**
+   * Helper for rounding approximations. The rounding error is at most
+   * 2^-(bitLength(n) + 4), which is less than 1/(16n). Rationals whose
+   * denominators are already no bigger than that are left as they are.
+   *
+   * @param r
+   *          approximation to round
+   * @param n
+   *          approximation limit r was computed for
+   * @return a rational within 1/(16n) of r, with a denominator of at most
+   *         bitLength(n) + 4 bits
+   */
+  static Rational round(Rational r, BigInteger n) {
+    int bits = n.bitLength() + 3;
+    if(r.den().bitLength() <= bits + 1) return r;
+    return r.roundToBits(bits);
+  }
+
+  /**
+   * Helper for leaving room for rounding. An approximation to within
+   * 1/pad(n) is less than 8/(9n) off, which together with the error from
+   * {@link #round(Rational, BigInteger)} is still within 1/n.
+   *
+   * @param n
+   *          approximation limit
+   * @return n + n/8 + 1
+   */
+  static BigInteger pad(BigInteger n) {
+    return n.add(n.shiftRight(3)).add(BigInteger.ONE);
+  }
+
+  /**
+   * Helper for building a real that is an affine function of another,
+   * a * x + b.
+   *
+   * <p>If x is itself affine, the two are composed into one node, which is
+   * what keeps linear chains from growing any deeper.
+   *
+   * @param x
+   *          real to scale and shift
+   * @param a
+   *          scale
+   * @param b
+   *          shift
+   * @return a * x + b
+   */
+  static Real affine(Real x, Rational a, Rational b) {
+    if(a.num().signum() == 0) return new Real(b);
+    if(a.equals(Rational.ONE) && b.num().signum() == 0) return x;
+    if(x.exact != null) return new Real(x.exact.multiply(a).add(b));
+    if(x.node != null && x.node.kind == Kind.AFFINE) {
+      return affine(x.node.operands[0],
+                    a.multiply(x.node.scale),
+                    a.multiply(x.node.offset).add(b));
+    }
+    return new Real(new Node(Kind.AFFINE, new Real[] {x},
+                             a.abs().ceil().max(BigInteger.ONE), a, b));
   }
 
   /**
@@ -58,7 +232,127 @@ public class Real {
    * @return an approximation of this to within 1/n
    */
   public Rational approx(int n) {
-    return val.apply(BigInteger.valueOf(n));
+    return approx(BigInteger.valueOf(n));
+  }
+
+  /**
+   * Asynchronous approximation to within 1/n.
+   *
+   * <p>The approximation runs on the given executor. Cancelling the returned
+   * future interrupts the thread doing the work, and the series loops and
+   * {@link #inverseBound()} search check for that interrupt, so the thread is
+   * released promptly instead of finishing a computation nobody needs. Work
+   * the approximation hands to parallel streams, as in
+   * {@link #parallelSum(Collection)}, is stopped the same way through a shared
+   * cancellation flag. Since the work only ever waits on the CPU, this is well
+   * suited to virtual thread executors.
+   *
+   * @param n
+   *          approximation limit
+   * @param executor
+   *          executor to run the approximation on
+   * @return a future approximation of this to within 1/n, which fails with
+   *         a RejectedExecutionException if the executor will not run it
+   */
+  public CompletableFuture<Rational> approxAsync(BigInteger n,
+                                                 Executor executor) {
+    Thread[] worker = new Thread[1];
+    AtomicBoolean flag = new AtomicBoolean();
+
+    CompletableFuture<Rational> future = new CompletableFuture<Rational>() {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if(cancelled) flag.set(true);
+        synchronized(worker) {
+          if(cancelled && worker[0] != null) worker[0].interrupt();
+        }
+        return cancelled;
+      }
+    };
+
+    Runnable task = () -> {
+      synchronized(worker) {
+        if(future.isDone()) return;
+        worker[0] = Thread.currentThread();
+      }
+      try {
+        CANCELLED.set(flag);
+        future.complete(approx(n));
+      } catch(Throwable e) {
+        future.completeExceptionally(e);
+      } finally {
+        CANCELLED.remove();
+        synchronized(worker) {
+          worker[0] = null;
+          // Don't leak our own cancellation into the executor's next task.
+          if(future.isCancelled()) Thread.interrupted();
+        }
+      }
+    };
+
+    try {
+      executor.execute(task);
+    } catch(RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Asynchronous approximation to within 1/n.
+   *
+   * @param n
+   *          approximation limit (int)
+   * @param executor
+   *          executor to run the approximation on
+   * @return a future approximation of this to within 1/n
+   */
+  public CompletableFuture<Rational> approxAsync(int n, Executor executor) {
+    return approxAsync(BigInteger.valueOf(n), executor);
+  }
+
+  /**
+   * Cancellation check for long running loops. Only work done for an
+   * asynchronous approximation can be cancelled, so plain calls to
+   * {@link #approx(BigInteger)} ignore the thread's interrupt status.
+   *
+   * @throws CancellationException
+   *           if the current thread is working for an asynchronous
+   *           approximation that has been cancelled, or has been interrupted
+   */
+  static void checkCancelled() {
+    AtomicBoolean flag = CANCELLED.get();
+    if(flag == null) return;
+    if(flag.get() || Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("approximation interrupted");
+    }
+  }
+
+  /**
+   * Helper for handing work to other threads, such as those of a parallel
+   * stream. The result runs f under the cancellation flag of the thread that
+   * called this, so cancelling an asynchronous approximation also stops the
+   * work it spread across the common pool.
+   *
+   * @param f
+   *          work to run
+   * @return f, checking for and propagating cancellation
+   */
+  static <T, R> Function<T, R> inheritCancellation(Function<T, R> f) {
+    AtomicBoolean flag = CANCELLED.get();
+    if(flag == null) return f;
+    return t -> {
+      AtomicBoolean previous = CANCELLED.get();
+      CANCELLED.set(flag);
+      try {
+        checkCancelled();
+        return f.apply(t);
+      } finally {
+        if(previous == null) CANCELLED.remove();
+        else CANCELLED.set(previous);
+      }
+    };
   }
 
   /**
@@ -69,8 +363,7 @@ public class Real {
    * @return an approximation of this to within 1/n, in decimal form
    */
   public BigDecimal decimalApprox(int n) {
-    return val.apply(BigInteger.valueOf((int)Math.pow(10.0, (double)n)))
-           .decimalValue(n + 1);
+    return approx(BigInteger.TEN.pow(n)).decimalValue(n + 1);
   }
 
   /**
@@ -79,7 +372,7 @@ public class Real {
    * @return (-1) * this
    */
   public Real negate() {
-    return new Real(n -> val.apply(n).negate());
+    return affine(this, Rational.ONE.negate(), Rational.ZERO);
   }
 
   /**
@@ -90,11 +383,18 @@ public class Real {
    * @return sum
    */
   public Real add(Real other) {
-    BigInteger two = new BigInteger("2");
+    if(exact != null) return affine(other, Rational.ONE, exact);
+    if(other.exact != null) return affine(this, Rational.ONE, other.exact);
 
-    return new Real(n ->
-                    val.apply(n.multiply(two))
-                    .add(other.val.apply(n.multiply(two))));
+    Real[] xs = operandsOf(Kind.SUM);
+    Real[] ys = other.operandsOf(Kind.SUM);
+    if(xs.length + ys.length > MAX_OPERANDS) {
+      xs = new Real[] {this};
+      ys = new Real[] {other};
+    }
+    Real[] terms = concat(xs, ys);
+    return new Real(new Node(Kind.SUM, terms,
+                             BigInteger.valueOf(terms.length)));
   }
 
   /**
@@ -109,8 +409,9 @@ public class Real {
     boolean test;
 
     do {
+      checkCancelled();
       aux = aux.add(BigInteger.ONE);
-      xn = val.apply(aux);
+      xn = approx(aux);
       test = xn.den().abs().compareTo(xn.num().multiply(aux).abs()) < 0;
     } while(!test);
 
@@ -121,16 +422,17 @@ public class Real {
    * Negation for real numbers.
    *
    * @return 1 / this
+   * @throws ArithmeticException
+   *           if this is known to be exactly zero
    */
   public Real inverse() {
+    if(exact != null) {
+      return new Real(exact.inverse().orElseThrow(
+                        () -> new ArithmeticException("division by zero")));
+    }
     BigInteger b = this.inverseBound();
-    BigInteger b2 = b.multiply(b);
-    BigInteger b3 = b2.multiply(b);
 
-    return new Real(n ->
-                    n.compareTo(b) < 0
-                    ? val.apply(b3).inverse().get()
-                    : val.apply(b2.multiply(n)).inverse().get());
+    return new Real(new Node(Kind.INVERSE, new Real[] {this}, b));
   }
 
   /**
@@ -141,31 +443,206 @@ public class Real {
    * @return product
    */
   public Real multiply(Real other) {
-    BigInteger two = BigInteger.ONE.add(BigInteger.ONE);
-    BigInteger kx = val.apply(BigInteger.ONE).abs().ceil().add(two);
-    BigInteger ky = other.val.apply(BigInteger.ONE).abs().ceil().add(two);
-    BigInteger twoK = kx.max(ky).multiply(two);
+    if(exact != null) return affine(other, exact, Rational.ZERO);
+    if(other.exact != null) return affine(this, other.exact, Rational.ZERO);
+
+    Real[] xs = operandsOf(Kind.PRODUCT);
+    Real[] ys = other.operandsOf(Kind.PRODUCT);
+    if(xs.length + ys.length > MAX_OPERANDS) {
+      xs = new Real[] {this};
+      ys = new Real[] {other};
+    }
+    Real[] factors = concat(xs, ys);
+    BigInteger scale = BigInteger.valueOf(factors.length)
+                       .multiply(productBound(xs))
+                       .multiply(other.productBound(ys));
+    return new Real(new Node(Kind.PRODUCT, factors, scale));
+  }
+
+  /**
+   * Helper for merging nested sums and products.
+   *
+   * @param kind
+   *          kind of node being built, SUM or PRODUCT
+   * @return the operands of this if it is a node of that kind, or else just
+   *         this
+   */
+  private Real[] operandsOf(Kind kind) {
+    if(node != null && node.kind == kind) return node.operands;
+    return new Real[] {this};
+  }
+
+  /**
+   * Helper for bounding factors, as in {@link #product(Collection)}.
+   *
+   * @param factors
+   *          what this contributes to a product, from
+   *          {@link #operandsOf(Kind)} or just this
+   * @return the product of ceil|x| + 2 over those factors
+   */
+  private BigInteger productBound(Real[] factors) {
+    if(factors.length == 1 && factors[0] == this) {
+      return approx(BigInteger.ONE).abs().ceil().add(new BigInteger("2"));
+    }
+    // A product node's factor is its operand count times this bound
+    return node.factor.divide(BigInteger.valueOf(node.operands.length));
+  }
+
+  /**
+   * Helper for joining operand arrays.
+   *
+   * @param xs
+   *          first operands
+   * @param ys
+   *          second operands
+   * @return xs followed by ys
+   */
+  private static Real[] concat(Real[] xs, Real[] ys) {
+    Real[] result = Arrays.copyOf(xs, xs.length + ys.length);
+    System.arraycopy(ys, 0, result, xs.length, ys.length);
+    return result;
+  }
+
+  /**
+   * Sum of many real numbers.
+   *
+   * <p>Chaining {@link #add(Real)} doubles the precision asked of the leaves
+   * at every level, so k terms cost precision 2^k * n. Here the error budget
+   * is split evenly instead: each of the k terms is approximated to within
+   * 1/(k * n).
+   *
+   * @param terms
+   *          reals to add
+   * @return sum
+   */
+  public static Real sum(Collection<Real> terms) {
+    return sum(terms, false);
+  }
+
+  /**
+   * Sum of many real numbers, approximating the terms in parallel.
+   *
+   * @param terms
+   *          reals to add
+   * @return sum
+   */
+  public static Real parallelSum(Collection<Real> terms) {
+    return sum(terms, true);
+  }
+
+  /**
+   * Helper for sums.
+   *
+   * @param terms
+   *          reals to add
+   * @param parallel
+   *          whether to approximate the terms in parallel
+   * @return sum
+   */
+  private static Real sum(Collection<Real> terms, boolean parallel) {
+    List<Real> rs = new ArrayList<>(terms);
+    BigInteger k = BigInteger.valueOf(rs.size());
+    if(rs.isEmpty()) return ZERO;
+
+    if(!parallel) {
+      return new Real(new Node(Kind.SUM, rs.toArray(new Real[0]), k));
+    }
+    return new Real(n -> {
+      BigInteger m = pad(n).multiply(k);
+      return round(stream(rs, parallel)
+                   .map(inheritCancellation(r -> r.approx(m)))
+                   .reduce(Rational.ZERO, Rational::add), n);
+    });
+  }
+
+  /**
+   * Product of many real numbers.
+   *
+   * <p>If b_i bounds |x_i| + 1 for each of the k factors, approximating every
+   * factor to within 1/m gives the product to within k * (b_1 * ... * b_k) / m,
+   * so the precision only grows by that factor, rather than compounding the
+   * way chained calls to {@link #multiply(Real)} do.
+   *
+   * @param factors
+   *          reals to multiply
+   * @return product
+   */
+  public static Real product(Collection<Real> factors) {
+    return product(factors, false);
+  }
+
+  /**
+   * Product of many real numbers, approximating the factors in parallel.
+   *
+   * @param factors
+   *          reals to multiply
+   * @return product
+   */
+  public static Real parallelProduct(Collection<Real> factors) {
+    return product(factors, true);
+  }
+
+  /**
+   * Helper for products.
+   *
+   * @param factors
+   *          reals to multiply
+   * @param parallel
+   *          whether to approximate the factors in parallel
+   * @return product
+   */
+  private static Real product(Collection<Real> factors, boolean parallel) {
+    List<Real> rs = new ArrayList<>(factors);
+    BigInteger two = new BigInteger("2");
+    if(rs.isEmpty()) return ONE;
+    BigInteger scale = stream(rs, parallel)
+                       .map(r -> r.approx(BigInteger.ONE).abs().ceil()
+                            .add(two))
+                       .reduce(BigInteger.valueOf(rs.size()),
+                               BigInteger::multiply);
+
+    if(!parallel) {
+      return new Real(new Node(Kind.PRODUCT, rs.toArray(new Real[0]), scale));
+    }
+    return new Real(n -> {
+      BigInteger m = pad(n).multiply(scale);
+      return round(stream(rs, parallel)
+                   .map(inheritCancellation(r -> r.approx(m)))
+                   .reduce(Rational.ONE, Rational::multiply), n);
+    });
+  }
 
-    return new Real(n ->
-                    val.apply(n.multiply(twoK))
-                    .multiply(other.val.apply(n.multiply(twoK))));
+  /**
+   * Helper for streaming over operands.
+   *
+   * @param rs
+   *          operands
+   * @param parallel
+   *          whether the stream should be parallel
+   * @return a stream over rs
+   */
+  private static Stream<Real> stream(List<Real> rs, boolean parallel) {
+    return parallel ? rs.parallelStream() : rs.stream();
   }
 
   /**
-   * Integer square root helper method for square root.
+   * Integer square root helper method for square root. Uses Newton's method
+   * from above, which decreases steadily to the root, so huge inputs take a
+   * handful of divisions rather than a recursion as deep as their length.
    *
    * @param x
    *          integer to square root
-   * @return integer square root of x
+   * @return integer square root of x, or 0 if x is negative
    */
-  private static BigInteger isqrt(BigInteger x) {
-    if(x.equals(BigInteger.ZERO)) return BigInteger.ZERO;
+  static BigInteger isqrt(BigInteger x) {
+    if(x.signum() <= 0) return BigInteger.ZERO;
 
-    BigInteger z = x.divide(new BigInteger("4"));
-    BigInteger r2 = (new BigInteger("2")).multiply(isqrt(z));
-    BigInteger r3 = r2.add(BigInteger.ONE);
-    if(x.compareTo(r3.multiply(r3)) < 0) return r2;
-    else return r3;
+    BigInteger r = BigInteger.ONE.shiftLeft((x.bitLength() + 1) / 2);
+    while(true) {
+      BigInteger next = r.add(x.divide(r)).shiftRight(1);
+      if(next.compareTo(r) >= 0) return r;
+      r = next;
+    }
   }
 
   /**
@@ -176,17 +653,35 @@ public class Real {
    * @return square root of r
    */
   public static Real sqrt(Real r) {
+    return new Real(new Node(Kind.SQRT, new Real[] {r}, BigInteger.ONE));
+  }
+
+  /**
+   * Helper for square root function.
+   *
+   * @param xn
+   *          approximation of the real to take the square root of
+   * @param n
+   *          approximation number
+   * @return sqrt(xn)_n, or 0 if xn is negative
+   */
+  private static Rational sqrt(Rational xn, BigInteger n) {
     BigInteger two = new BigInteger("2");
-    return new Real(
-             n -> Rational.create(
-               isqrt(r.val.apply(n).normalize(n).multiply(two).multiply(n)),
-               two.multiply(n))
-             .get());
+    return Rational.create(
+             isqrt(xn.normalize(n).multiply(two).multiply(n)),
+             two.multiply(n))
+           .get();
   }
 
   /**
    * Helper for cosine function.
    *
+   * <p>Like the other series helpers, this sums in fixed point, with
+   * {@link #seriesBits(BigInteger, Rational)} bits after the point, so the
+   * terms stay proportional in size to the precision instead of growing
+   * with every term, and each term is the previous one times x^2 divided by
+   * a small integer. The result is within 1/(32n) of the exact partial sum.
+   *
    * @param r
    *          real to take cos of
    * @param n
@@ -194,36 +689,44 @@ public class Real {
    * @return cos(r)_n
    */
   public static Rational cos(Real r, BigInteger n) {
-    Rational xnSq = (r.val.apply(n)).multiply(r.val.apply(n));
-    Rational sumAcc = Rational.ZERO;
-    boolean positive = true;
-    Rational xAcc = Rational.ONE;
-    Rational factAcc = Rational.ONE;
+    return cosSeries(r.approx(n), n);
+  }
 
-    BigInteger four = new BigInteger("4");
-    BigInteger ten = new BigInteger("10");
-    BigInteger six = new BigInteger("6");
+  /**
+   * Helper for {@link #cos(Real, BigInteger)}, given the approximation of
+   * the argument.
+   *
+   * @param xn
+   *          approximation of the argument
+   * @param n
+   *          approximation number
+   * @return cos(xn)_n
+   */
+  private static Rational cosSeries(Rational xn, BigInteger n) {
+    int w = seriesBits(n, xn);
+    BigInteger x = toFixed(xn, w);
+    BigInteger xSq = x.multiply(x).shiftRight(w);
+    BigInteger term = BigInteger.ONE.shiftLeft(w);
+    BigInteger sumAcc = term;
+    boolean positive = true;
 
-    for(BigInteger k = new BigInteger("2");
-        k.compareTo(n) < 0;
-        k = k.add(BigInteger.ONE)) {
+    for(long k = 1, limit = seriesTerms(n);
+        k < limit && term.signum() != 0;
+        k++) {
+      checkCancelled();
       positive = !positive;
-      xAcc = xAcc.multiply(xnSq);
-      factAcc = factAcc.multiply(
-                  Rational.create(
-                    BigInteger.ONE,
-                    k.multiply(k).multiply(four)
-                    .subtract(k.multiply(ten))
-                    .add(six))
-                  .get());
-      if(positive) sumAcc = sumAcc.add(xAcc.multiply(factAcc));
-      else sumAcc = sumAcc.add(xAcc.multiply(factAcc).negate());
+      BigInteger twoK = BigInteger.valueOf(k).shiftLeft(1);
+      term = term.multiply(xSq).shiftRight(w)
+             .divide(twoK.multiply(twoK.subtract(BigInteger.ONE)));
+      if(positive) sumAcc = sumAcc.add(term);
+      else sumAcc = sumAcc.subtract(term);
     }
-    return sumAcc.add(Rational.ONE);
+    return Rational.create(sumAcc, BigInteger.ONE.shiftLeft(w)).get();
   }
 
   /**
-   * Helper for arctan function.
+   * Helper for arctan function. Only meaningful for |r| &lt;= 1, where the
+   * series converges.
    *
    * @param r
    *          real to take arctan of
@@ -232,22 +735,39 @@ public class Real {
    * @return atan(r)_n
    */
   public static Rational arctan(Real r, BigInteger n) {
-    Rational xnSq = (r.val.apply(n)).multiply(r.val.apply(n));
-    Rational sumAcc = Rational.ZERO;
+    return arctanSeries(r.approx(n), n);
+  }
+
+  /**
+   * Helper for {@link #arctan(Real, BigInteger)}, given the approximation of
+   * the argument.
+   *
+   * @param xn
+   *          approximation of the argument
+   * @param n
+   *          approximation number
+   * @return atan(xn)_n
+   */
+  private static Rational arctanSeries(Rational xn, BigInteger n) {
+    int w = seriesBits(n, xn);
+    BigInteger x = toFixed(xn, w);
+    BigInteger xSq = x.multiply(x).shiftRight(w);
+    BigInteger xAcc = BigInteger.ONE.shiftLeft(w);
+    BigInteger sumAcc = xAcc;
     boolean positive = true;
-    Rational xAcc = Rational.ONE;
-    Rational countAcc = Rational.ONE;
 
-    for(BigInteger k = new BigInteger("2");
-        k.compareTo(n) < 0;
-        k = k.add(BigInteger.ONE)) {
+    for(long k = 1, limit = seriesTerms(n);
+        k < limit && xAcc.signum() != 0;
+        k++) {
+      checkCancelled();
       positive = !positive;
-      xAcc = xAcc.multiply(xnSq);
-      countAcc = countAcc.add(Rational.ONE).add(Rational.ONE);
-      if(positive) sumAcc = sumAcc.add(xAcc.divide(countAcc).get());
-      else sumAcc = sumAcc.add(xAcc.divide(countAcc).get().negate());
+      xAcc = xAcc.multiply(xSq).shiftRight(w);
+      BigInteger term =
+        xAcc.divide(BigInteger.valueOf(k).shiftLeft(1).add(BigInteger.ONE));
+      if(positive) sumAcc = sumAcc.add(term);
+      else sumAcc = sumAcc.subtract(term);
     }
-    return sumAcc.add(Rational.ONE);
+    return Rational.create(sumAcc, BigInteger.ONE.shiftLeft(w)).get();
   }
 
   /**
@@ -258,11 +778,7 @@ public class Real {
    * @return atan(r)
    */
   public static Real arctan(Real r) {
-    return new Real(n ->
-                    Rational.create(
-                      arctan(r, n).normalize(n),
-                      n.multiply(new BigInteger("2")))
-                    .get());
+    return new Real(new Node(Kind.ARCTAN, new Real[] {r}, BigInteger.ONE));
   }
 
   /**
@@ -273,11 +789,7 @@ public class Real {
    * @return cos(r)
    */
   public static Real cos(Real r) {
-    return new Real(n ->
-                    Rational.create(
-                      cos(r, n).normalize(n),
-                      n.multiply(new BigInteger("2")))
-                    .get());
+    return new Real(new Node(Kind.COS, new Real[] {r}, BigInteger.ONE));
   }
 
   /**
@@ -290,22 +802,32 @@ public class Real {
    * @return e^r_n
    */
   public static Rational exp(Real r, BigInteger n) {
-    Rational xn = r.val.apply(n);
-    Rational sumAcc = Rational.ZERO;
-    Rational xAcc = Rational.ONE;
-    Rational factAcc = Rational.ONE;
-    for(BigInteger k = new BigInteger("2");
-        k.compareTo(n) < 0;
-        k = k.add(BigInteger.ONE)) {
-      xAcc = xAcc.multiply(xn);
-      factAcc = factAcc.multiply(
-                  Rational.create(
-                    BigInteger.ONE,
-                    k.subtract(BigInteger.ONE))
-                  .get());
-      sumAcc = sumAcc.add(xAcc.multiply(factAcc));
+    return expSeries(r.approx(n), n);
+  }
+
+  /**
+   * Helper for {@link #exp(Real, BigInteger)}, given the approximation of
+   * the argument.
+   *
+   * @param xn
+   *          approximation of the argument
+   * @param n
+   *          approximation number
+   * @return e^xn_n
+   */
+  private static Rational expSeries(Rational xn, BigInteger n) {
+    int w = seriesBits(n, xn);
+    BigInteger x = toFixed(xn, w);
+    BigInteger xAcc = BigInteger.ONE.shiftLeft(w);
+    BigInteger sumAcc = xAcc;
+    for(long k = 1, limit = seriesTerms(n);
+        k < limit && xAcc.signum() != 0;
+        k++) {
+      checkCancelled();
+      xAcc = xAcc.multiply(x).shiftRight(w).divide(BigInteger.valueOf(k));
+      sumAcc = sumAcc.add(xAcc);
     }
-    return sumAcc.add(Rational.ONE);
+    return Rational.create(sumAcc, BigInteger.ONE.shiftLeft(w)).get();
   }
 
   /**
@@ -316,10 +838,239 @@ public class Real {
    * @return e^r
    */
   public static Real exp(Real r) {
-    return new Real(n ->
-                    Rational.create(
-                      exp(r, n).normalize(n),
-                      n.multiply(new BigInteger("2")))
-                    .get());
+    return new Real(new Node(Kind.EXP, new Real[] {r}, BigInteger.ONE));
+  }
+
+  /**
+   * Helper for choosing the working precision of a series.
+   *
+   * <p>Each of the (fewer than n) fixed point steps is off by at most two
+   * units in the last place, and later terms amplify that by at most
+   * e^|x| &lt; 4^ceil|x| in total. So with w bits the sum is off by less
+   * than 2^(bitLength(n) + 1 + 2 ceil|x| - w), which is below 1/(32n) here.
+   *
+   * @param n
+   *          approximation number
+   * @param x
+   *          argument of the series
+   * @return number of bits to keep after the point
+   */
+  private static int seriesBits(BigInteger n, Rational x) {
+    return 2 * n.bitLength() + 2 * x.abs().ceil().intValue() + 6;
+  }
+
+  /**
+   * Helper for bounding the number of terms of a series. The series helpers
+   * sum the terms of index below n - 1, though in practice they stop long
+   * before, once the terms round to zero.
+   *
+   * @param n
+   *          approximation number
+   * @return n - 1, capped at Long.MAX_VALUE, which is more terms than any
+   *         series could get through
+   */
+  private static long seriesTerms(BigInteger n) {
+    return n.subtract(BigInteger.ONE)
+           .min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+  }
+
+  /**
+   * Helper for converting to fixed point.
+   *
+   * @param x
+   *          rational to convert
+   * @param w
+   *          number of bits after the point
+   * @return x * 2^w, rounded to the nearest integer
+   */
+  private static BigInteger toFixed(Rational x, int w) {
+    BigInteger m = x.scaledMagnitude(BigInteger.ONE.shiftLeft(w));
+    return x.num().signum() < 0 ? m.negate() : m;
+  }
+
+  /**
+   * Kinds of operation nodes.
+   */
+  private enum Kind {
+    /** scale * x + offset */
+    AFFINE,
+    /** sum of the operands */
+    SUM,
+    /** product of the operands */
+    PRODUCT,
+    /** 1 / x */
+    INVERSE,
+    /** sqrt(x) */
+    SQRT,
+    /** cos(x) */
+    COS,
+    /** e^x */
+    EXP,
+    /** atan(x), for |x| &lt;= 1 */
+    ARCTAN
+  }
+
+  /**
+   * Node class. An operation on other reals, together with the constants
+   * needed to decide what precision to ask the operands for.
+   */
+  private static class Node {
+
+    final Kind kind;
+    final Real[] operands;
+
+    /**
+     * Precision multiplier for the operands. For INVERSE, the inverse bound.
+     */
+    final BigInteger factor;
+
+    final Rational scale;
+    final Rational offset;
+
+    /**
+     * Constructor.
+     *
+     * @param kind
+     *          kind of operation
+     * @param operands
+     *          reals the operation is applied to
+     * @param factor
+     *          precision multiplier for the operands
+     */
+    Node(Kind kind, Real[] operands, BigInteger factor) {
+      this(kind, operands, factor, null, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param kind
+     *          kind of operation
+     * @param operands
+     *          reals the operation is applied to
+     * @param factor
+     *          precision multiplier for the operands
+     * @param scale
+     *          scale of an AFFINE node
+     * @param offset
+     *          offset of an AFFINE node
+     */
+    Node(Kind kind, Real[] operands, BigInteger factor,
+         Rational scale, Rational offset) {
+      this.kind = kind;
+      this.operands = operands;
+      this.factor = factor;
+      this.scale = scale;
+      this.offset = offset;
+    }
+
+    /**
+     * Precision to ask the operands for.
+     *
+     * @param n
+     *          precision asked of this node
+     * @return precision to ask of the operands
+     */
+    BigInteger demand(BigInteger n) {
+      if(kind == Kind.INVERSE) {
+        // factor is the inverse bound b, and operands are needed to b^2 * n,
+        // but never less than b^3
+        return factor.multiply(factor).multiply(n.max(factor));
+      }
+      return n.multiply(factor);
+    }
+
+    /**
+     * Combines approximations of the operands.
+     *
+     * @param args
+     *          approximations of the operands, to the demanded precision
+     * @param n
+     *          precision asked of this node
+     * @return approximation of this node
+     */
+    Rational combine(Rational[] args, BigInteger n) {
+      switch(kind) {
+      case AFFINE:
+        return args[0].multiply(scale).add(offset);
+      case SUM: {
+        Rational acc = args[0];
+        for(int i = 1; i < args.length; i++) acc = acc.add(args[i]);
+        return acc;
+      }
+      case PRODUCT: {
+        // Reducing once at the end, in rounding, rather than after every
+        // factor, keeps long products from spending their time in gcds
+        BigInteger[] nums = new BigInteger[args.length];
+        BigInteger[] dens = new BigInteger[args.length];
+        for(int i = 0; i < args.length; i++) {
+          nums[i] = args[i].num();
+          dens[i] = args[i].den();
+        }
+        return Rational.create(product(nums, 0, args.length),
+                               product(dens, 0, args.length)).get();
+      }
+      case INVERSE:
+        return args[0].inverse().get();
+      case SQRT:
+        return sqrt(args[0], n);
+      case COS:
+        return cosSeries(args[0], n);
+      case EXP:
+        return expSeries(args[0], n);
+      default:
+        return arctanSeries(args[0], n);
+      }
+    }
+  }
+
+  /**
+   * Helper for multiplying many integers, pairing them up so that the
+   * operands of each multiplication are about the same size.
+   *
+   * @param xs
+   *          integers to multiply
+   * @param from
+   *          first index
+   * @param to
+   *          index after the last
+   * @return product of xs[from] through xs[to - 1]
+   */
+  private static BigInteger product(BigInteger[] xs, int from, int to) {
+    if(to - from == 1) return xs[from];
+    int mid = (from + to) >>> 1;
+    return product(xs, from, mid).multiply(product(xs, mid, to));
+  }
+
+  /**
+   * Frame class. A node whose operands are being approximated.
+   */
+  private static class Frame {
+
+    final Node node;
+
+    /**
+     * Precision asked of the node, which its result is rounded for.
+     */
+    final BigInteger n;
+
+    final BigInteger demand;
+    final Rational[] args;
+    int next = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param node
+     *          node to approximate
+     * @param n
+     *          precision asked of the node
+     */
+    Frame(Node node, BigInteger n) {
+      this.node = node;
+      this.n = n;
+      this.demand = node.demand(pad(n));
+      this.args = new Rational[node.operands.length];
+    }
   }
 }
@@ -0,0 +1,258 @@
+package numbers;
+
+import java.math.BigInteger;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * RealMatrix class. Represents a matrix of reals the same way {@code Real}
+ * represents a single real: as a function from n to a {@code RationalMatrix}
+ * whose entries are all within 1/n of the entries of this matrix.
+ *
+ * <p>Evaluating the whole matrix at one shared precision means operations
+ * like multiplication only ask their operands for a single approximation,
+ * rather than building a separate chain of {@code Real} operations for
+ * every entry. Like {@code Real} operations, operations on matrices round
+ * their approximations, and ask their operands for padded precision to make
+ * room for that.
+ *
+ * @author Harrison Goldstein
+ */
+public class RealMatrix {
+
+  /**
+   * Number of entries above which they are approximated in parallel.
+   */
+  private static final int PARALLEL_THRESHOLD = 64;
+
+  private final Function<BigInteger, RationalMatrix> val;
+
+  /**
+   * Approximations of single entries, so reading one entry does not cost
+   * an approximation of the whole matrix.
+   */
+  private final Entry entry;
+
+  private final int rows;
+  private final int cols;
+
+  /**
+   * Constructor.
+   *
+   * @param rows
+   *          number of rows
+   * @param cols
+   *          number of columns
+   * @param f
+   *          function representing the matrix
+   * @param entry
+   *          function representing each entry, agreeing with f
+   */
+  private RealMatrix(int rows, int cols,
+                     Function<BigInteger, RationalMatrix> f, Entry entry) {
+    this.rows = rows;
+    this.cols = cols;
+    this.val = f;
+    this.entry = entry;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param m
+   *          rational matrix to make the real matrix with
+   */
+  public RealMatrix(RationalMatrix m) {
+    this(m.rows(), m.cols(), n -> m, (i, j, n) -> m.get(i, j));
+  }
+
+  /**
+   * Static constructor.
+   *
+   * @param entries
+   *          entries of the matrix, in row major order
+   * @return either a matrix, or `empty` if entries is empty or ragged
+   */
+  public static Optional<RealMatrix> create(Real[][] entries) {
+    if(entries.length == 0 || entries[0].length == 0) return Optional.empty();
+    int rows = entries.length;
+    int cols = entries[0].length;
+    Real[][] copy = new Real[rows][];
+    for(int i = 0; i < rows; i++) {
+      if(entries[i].length != cols) return Optional.empty();
+      copy[i] = entries[i].clone();
+    }
+
+    return Optional.of(new RealMatrix(rows, cols, n -> {
+      Rational[][] e = new Rational[rows][cols];
+      Function<Integer, Rational> entry =
+        Real.inheritCancellation(k -> copy[k / cols][k % cols].approx(n));
+      IntStream indices = IntStream.range(0, rows * cols);
+      if(rows * cols > PARALLEL_THRESHOLD) indices = indices.parallel();
+      indices.forEach(k -> e[k / cols][k % cols] = entry.apply(k));
+      return RationalMatrix.create(e).get();
+    }, (i, j, n) -> copy[i][j].approx(n)));
+  }
+
+  /**
+   * Getter for the number of rows.
+   *
+   * @return number of rows
+   */
+  public int rows() {
+    return rows;
+  }
+
+  /**
+   * Getter for the number of columns.
+   *
+   * @return number of columns
+   */
+  public int cols() {
+    return cols;
+  }
+
+  /**
+   * Approximation to within 1/n, entrywise.
+   *
+   * @param n
+   *          approximation limit
+   * @return a matrix whose entries are within 1/n of the entries of this
+   */
+  public RationalMatrix approx(BigInteger n) {
+    return val.apply(n);
+  }
+
+  /**
+   * Approximation to within 1/n, entrywise.
+   *
+   * @param n
+   *          approximation limit (int)
+   * @return a matrix whose entries are within 1/n of the entries of this
+   */
+  public RationalMatrix approx(int n) {
+    return val.apply(BigInteger.valueOf(n));
+  }
+
+  /**
+   * Getter for a single entry.
+   *
+   * @param i
+   *          row of the entry
+   * @param j
+   *          column of the entry
+   * @return the entry at (i, j)
+   */
+  public Real get(int i, int j) {
+    return new Real(n -> entry.approx(i, j, n));
+  }
+
+  /**
+   * Addition for real matrices.
+   *
+   * @param other
+   *          the matrix to add to this matrix
+   * @return either the sum, or `empty` if the dimensions differ
+   */
+  public Optional<RealMatrix> add(RealMatrix other) {
+    if(rows != other.rows || cols != other.cols) return Optional.empty();
+    BigInteger two = new BigInteger("2");
+
+    Function<BigInteger, RationalMatrix> f = n -> {
+      BigInteger m = Real.pad(n).multiply(two);
+      return round(val.apply(m).add(other.val.apply(m)).get(), n);
+    };
+    Entry e = (i, j, n) -> {
+      BigInteger m = Real.pad(n).multiply(two);
+      return Real.round(entry.approx(i, j, m)
+                        .add(other.entry.approx(i, j, m)), n);
+    };
+    return Optional.of(new RealMatrix(rows, cols, f, e));
+  }
+
+  /**
+   * Multiplication for real matrices.
+   *
+   * <p>If every entry of this is bounded by ka and every entry of other by
+   * kb, then approximating both operands to within 1/m gives each entry of
+   * the product to within cols * (ka + kb + 1) / m.
+   *
+   * @param other
+   *          the matrix to multiply this matrix by, on the right
+   * @return either the product, or `empty` if the dimensions do not match
+   */
+  public Optional<RealMatrix> multiply(RealMatrix other) {
+    if(cols != other.rows) return Optional.empty();
+
+    BigInteger scale = entryBound().add(other.entryBound()).add(BigInteger.ONE)
+                       .multiply(BigInteger.valueOf(cols));
+
+    Function<BigInteger, RationalMatrix> f = n -> {
+      BigInteger m = Real.pad(n).multiply(scale);
+      return round(val.apply(m).multiply(other.val.apply(m)).get(), n);
+    };
+    Entry e = (i, j, n) -> {
+      BigInteger m = Real.pad(n).multiply(scale);
+      Rational acc = Rational.ZERO;
+      for(int k = 0; k < cols; k++) {
+        acc = acc.add(entry.approx(i, k, m)
+                      .multiply(other.entry.approx(k, j, m)));
+      }
+      return Real.round(acc, n);
+    };
+    return Optional.of(new RealMatrix(rows, other.cols, f, e));
+  }
+
+  /**
+   * Helper for rounding approximations, entrywise.
+   *
+   * @param a
+   *          approximation to round
+   * @param n
+   *          approximation limit a was computed for
+   * @return a, with each entry rounded as by {@code Real.round}
+   */
+  private static RationalMatrix round(RationalMatrix a, BigInteger n) {
+    Rational[][] e = new Rational[a.rows()][a.cols()];
+    for(int i = 0; i < a.rows(); i++) {
+      for(int j = 0; j < a.cols(); j++) e[i][j] = Real.round(a.get(i, j), n);
+    }
+    return RationalMatrix.create(e).get();
+  }
+
+  /**
+   * Helper for bounding the entries of this.
+   *
+   * @return an integer bounding the absolute value of every entry
+   */
+  private BigInteger entryBound() {
+    RationalMatrix m = val.apply(BigInteger.ONE);
+    BigInteger bound = BigInteger.ZERO;
+    for(int i = 0; i < rows; i++) {
+      for(int j = 0; j < cols; j++) {
+        bound = bound.max(m.get(i, j).abs().ceil());
+      }
+    }
+    return bound.add(BigInteger.ONE);
+  }
+
+  /**
+   * Entry interface. Approximates single entries of a matrix.
+   */
+  private interface Entry {
+
+    /**
+     * Approximation of one entry to within 1/n.
+     *
+     * @param i
+     *          row of the entry
+     * @param j
+     *          column of the entry
+     * @param n
+     *          approximation limit
+     * @return an approximation of the entry at (i, j) to within 1/n
+     */
+    Rational approx(int i, int j, BigInteger n);
+  }
+}
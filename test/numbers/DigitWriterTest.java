@@ -0,0 +1,85 @@
+package numbers;
+
+import static org.junit.Assert.*;
+import static numbers.TestRationals.r;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class DigitWriterTest {
+
+  private static String expected(Rational r, int scale) {
+    return new BigDecimal(r.num()).divide(new BigDecimal(r.den()), scale,
+                                          RoundingMode.HALF_UP)
+           .toPlainString();
+  }
+
+  @Test
+  public void testDecimal() {
+    Rational[] rs = {
+      Rational.ZERO, Rational.ONE, r(1, 3), r(-2, 3), r(22, 7), r(-1, 1000),
+      r(1, 2), r(-5, 2), r(123456789, 1), r(1, 1024)
+    };
+    for(Rational x : rs) {
+      for(int scale = 0; scale < 40; scale += 7) {
+        assertEquals(expected(x, scale), x.toDecimalString(scale));
+      }
+    }
+
+    // Negative scales round off digits before the point, as BigDecimal does
+    assertEquals("1800", r(12345, 7).toDecimalString(-2));
+    assertEquals("-123000000", r(-123456789, 1).toDecimalString(-6));
+    assertEquals("0", r(-2, 3).toDecimalString(-1));
+  }
+
+  @Test
+  public void testDecimalLarge() {
+    // Big enough to go through several levels of splitting
+    Rational x = Rational.create(BigInteger.TEN.pow(3000).add(BigInteger.ONE),
+                                 new BigInteger("7")).get();
+    Rational y = Rational.create(BigInteger.ONE,
+                                 BigInteger.ONE.shiftLeft(5000)).get();
+
+    assertEquals(expected(x, 5000), x.toDecimalString(5000));
+    assertEquals(expected(y, 6000), y.toDecimalString(6000));
+    assertEquals(expected(x.negate(), 100), x.negate().toDecimalString(100));
+  }
+
+  @Test
+  public void testHex() {
+    assertEquals("0.8", r(1, 2).toHexString(1));
+    assertEquals("-ff.40", r(-1021, 4).toHexString(2));
+    assertEquals("0.555555", r(1, 3).toHexString(6));
+    assertEquals("0.aab", r(2, 3).toHexString(3));
+    assertEquals("10", r(16, 1).toHexString(0));
+    assertEquals("3f0", r(1000, 1).toHexString(-1));
+
+    BigInteger big = BigInteger.ONE.shiftLeft(4000).subtract(BigInteger.ONE);
+    assertEquals(big.toString(16),
+                 Rational.create(big, BigInteger.ONE).get().toHexString(0));
+  }
+
+  @Test
+  public void testFile() throws Exception {
+    Path path = Files.createTempFile("digits", ".txt");
+    Rational x = r(1, 7);
+
+    try {
+      try(DigitWriter writer = DigitWriter.open(path)) {
+        writer.writeDecimal(x, 100000);
+        writer.write("\n");
+        writer.writeHex(x, 10);
+      }
+      String contents =
+        new String(Files.readAllBytes(path), StandardCharsets.US_ASCII);
+      assertEquals(expected(x, 100000) + "\n" + x.toHexString(10), contents);
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
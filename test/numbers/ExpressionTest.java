@@ -0,0 +1,132 @@
+package numbers;
+
+import static org.junit.Assert.*;
+import static numbers.TestRationals.r;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ExpressionTest {
+
+  public void checkInvariant(Real r, int tolerance) {
+    Rational bigN;
+    Rational bigM;
+    Rational leftSide;
+    for(int n = 1; n < tolerance; n++) {
+      for(int m = 1; m < n; m++) {
+        bigN = Rational.create(1, n).get();
+        bigM = Rational.create(1, m).get();
+        leftSide = r.approx(n).subtract(r.approx(m)).abs();
+        assertTrue(leftSide.compareTo(bigN.add(bigM)) <= 0);
+      }
+    }
+  }
+
+  public void checkClose(Real expected, Real actual, int n) {
+    assertTrue(actual.approx(n).subtract(expected.approx(n)).abs()
+               .compareTo(r(2, n)) <= 0);
+  }
+
+  @Test
+  public void testConstantFolding() {
+    Expression two = Expression.constant(2);
+    Expression half = Expression.constant(r(1, 2));
+
+    assertEquals(r(2, 1), two.add(two).multiply(half).constantValue().get());
+    assertEquals(r(-1, 2), half.subtract(Expression.constant(1))
+                 .constantValue().get());
+    assertEquals(r(2, 1), half.inverse().constantValue().get());
+    assertEquals(r(3, 2), Expression.sqrt(Expression.constant(r(9, 4)))
+                 .constantValue().get());
+    assertFalse(Expression.sqrt(two).constantValue().isPresent());
+    assertFalse(Expression.constant(0).inverse().constantValue().isPresent());
+    assertEquals(Rational.ONE,
+                 Expression.exp(two.subtract(two)).constantValue().get());
+  }
+
+  @Test
+  public void testRewrites() {
+    Expression x = Expression.of(Real.PI);
+    Expression sqrtX = Expression.sqrt(x);
+
+    assertEquals(x, x.multiply(Expression.constant(1)).simplify());
+    assertEquals(x, x.add(Expression.constant(0)).simplify());
+    assertEquals(x, x.negate().negate().simplify());
+    assertEquals(x, x.inverse().inverse().simplify());
+    assertEquals(Rational.ZERO, x.subtract(x).constantValue().get());
+    Expression expX = Expression.exp(x);
+    assertEquals(expX, Expression.sqrt(expX).multiply(Expression.sqrt(expX))
+                 .simplify());
+    assertEquals(Rational.create(3, 1).get(),
+                 Expression.sqrt(Expression.constant(3))
+                 .multiply(Expression.sqrt(Expression.constant(3)))
+                 .constantValue().get());
+
+    // sqrt(x) * sqrt(x) = x only holds for x >= 0, which is unknown here
+    assertFalse(x.equals(sqrtX.multiply(Expression.sqrt(x)).simplify()));
+    Expression minusTwo = Expression.constant(-2);
+    Expression sqrtMinusTwo = Expression.sqrt(minusTwo);
+    Expression square = sqrtMinusTwo.multiply(Expression.sqrt(minusTwo));
+    assertFalse(square.constantValue().isPresent());
+    assertEquals(Rational.ZERO, square.compile().approx(100));
+    assertEquals(Rational.ZERO,
+                 x.multiply(Expression.constant(0)).constantValue().get());
+    assertEquals(Rational.ONE,
+                 Expression.exp(x).multiply(Expression.exp(x.negate()))
+                 .constantValue().get());
+    assertEquals(Expression.exp(x.add(Expression.constant(1))).simplify(),
+                 Expression.exp(x).multiply(
+                   Expression.exp(Expression.constant(1))).simplify());
+  }
+
+  @Test
+  public void testCompile() {
+    Real two = new Real(r(2, 1));
+    Expression x = Expression.of(Real.sqrt(two));
+    Expression e = x.multiply(Expression.constant(3))
+                   .add(Expression.constant(r(1, 2)));
+
+    checkInvariant(e.compile(), 100);
+    checkClose(Real.sqrt(two).multiply(new Real(r(3, 1)))
+               .add(new Real(r(1, 2))), e.compile(), 1000);
+    checkInvariant(Expression.constant(r(1, 3)).compile(), 100);
+    checkInvariant(Expression.sqrt(Expression.constant(2)).compile(), 100);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testCompileDivideByZero() {
+    Expression two = Expression.constant(2);
+    two.divide(two.subtract(two)).compile();
+  }
+
+  @Test
+  public void testParse() {
+    Real two = new Real(r(2, 1));
+    Map<String, Real> vars = new HashMap<>();
+    vars.put("x", Real.sqrt(two));
+
+    assertEquals(r(7, 2), Expression.parse("(1 + 2.5) * 2 / 2", vars).get()
+                 .constantValue().get());
+    assertEquals(r(-1, 1), Expression.parse("-1", vars).get()
+                 .constantValue().get());
+    checkClose(two, Expression.parse("x * x", vars).get().compile(), 1000);
+    assertEquals(r(2, 1), Expression.parse("sqrt(2) * sqrt(2)", vars).get()
+                 .constantValue().get());
+    vars.put("c", Real.cos(new Real(r(3, 1))));
+    checkClose(Real.ZERO, Expression.parse("sqrt(c) * sqrt(c)", vars).get()
+               .compile(), 100);
+    checkClose(Real.sqrt(two), Expression.parse("x + 0", vars).get()
+               .compile(), 1000);
+
+    assertFalse(Expression.parse("1 +", vars).isPresent());
+    assertFalse(Expression.parse("(1", vars).isPresent());
+    assertFalse(Expression.parse("y", vars).isPresent());
+    assertFalse(Expression.parse("sin(1)", Collections.emptyMap())
+                .isPresent());
+    assertFalse(Expression.parse("1/0", vars).isPresent());
+    assertFalse(Expression.parse("x / (2 - 2)", vars).isPresent());
+    assertFalse(Expression.parse("0 * (1 / 0)", vars).isPresent());
+  }
+}
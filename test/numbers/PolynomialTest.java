@@ -0,0 +1,139 @@
+package numbers;
+
+import static org.junit.Assert.*;
+import static numbers.TestRationals.r;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+public class PolynomialTest {
+
+  public void checkInvariant(Real r, int tolerance) {
+    Rational bigN;
+    Rational bigM;
+    Rational leftSide;
+    for(int n = 1; n < tolerance; n++) {
+      for(int m = 1; m < n; m++) {
+        bigN = Rational.create(1, n).get();
+        bigM = Rational.create(1, m).get();
+        leftSide = r.approx(n).subtract(r.approx(m)).abs();
+        assertTrue(leftSide.compareTo(bigN.add(bigM)) <= 0);
+      }
+    }
+  }
+
+  public void checkClose(Rational expected, Real actual, int n) {
+    assertTrue(actual.approx(n).subtract(expected).abs()
+               .compareTo(r(1, n)) <= 0);
+  }
+
+  @Test
+  public void testCreate() {
+    assertEquals(-1, Polynomial.create().degree());
+    assertEquals(-1, Polynomial.create(Rational.ZERO).degree());
+    assertEquals(2, Polynomial.create(r(1, 1), r(0, 1), r(3, 1), r(0, 1))
+                 .degree());
+    assertEquals(Polynomial.ZERO, Polynomial.create(Rational.ZERO));
+  }
+
+  @Test
+  public void testEvaluate() {
+    // 1 - 2x + 3x^2
+    Polynomial p = Polynomial.create(r(1, 1), r(-2, 1), r(3, 1));
+
+    assertEquals(r(1, 1), p.evaluate(Rational.ZERO));
+    assertEquals(r(2, 1), p.evaluate(Rational.ONE));
+    assertEquals(r(3, 4), p.evaluate(r(1, 2)));
+    assertEquals(Arrays.asList(r(1, 1), r(2, 1)),
+                 p.evaluate(Arrays.asList(Rational.ZERO, Rational.ONE)));
+  }
+
+  @Test
+  public void testEvaluateReal() {
+    Real two = new Real(r(2, 1));
+    // x^2 - 2 vanishes at sqrt(2)
+    Polynomial p = Polynomial.create(r(-2, 1), r(0, 1), r(1, 1));
+    Real atSqrt2 = p.evaluate(Real.sqrt(two));
+    Real[] cs = {Real.sqrt(two), Real.ONE.negate(), Real.ONE};
+
+    checkInvariant(atSqrt2, 100);
+    checkClose(Rational.ZERO, atSqrt2, 1000);
+    // sqrt(2) - x + x^2 at 1 is sqrt(2)
+    checkInvariant(Polynomial.evaluate(cs, Real.ONE), 100);
+    checkClose(Real.sqrt(two).approx(10000),
+               Polynomial.evaluate(cs, Real.ONE), 1000);
+
+    // Approximations are rounded like those of Real operations
+    BigInteger n = BigInteger.TEN.pow(20);
+    Polynomial q = Polynomial.create(r(1, 7), r(0, 1), r(-3, 1), r(0, 1),
+                                     r(0, 1), r(1, 1));
+    assertTrue(q.evaluate(Real.E).approx(n).den().bitLength()
+               <= n.bitLength() + 4);
+  }
+
+  @Test
+  public void testArithmetic() {
+    Polynomial p = Polynomial.create(r(-1, 1), r(1, 1));
+    Polynomial q = Polynomial.create(r(1, 1), r(1, 1));
+    Polynomial pq = Polynomial.create(r(-1, 1), r(0, 1), r(1, 1));
+
+    assertEquals(pq, p.multiply(q));
+    assertEquals(Polynomial.create(r(2, 1)), q.subtract(p));
+    assertEquals(Polynomial.create(r(0, 1), r(2, 1)), q.add(p));
+    assertEquals(Polynomial.create(r(0, 1), r(2, 1)), pq.derivative());
+
+    Polynomial[] qr = pq.add(Polynomial.ONE).divideAndRemainder(p).get();
+    assertEquals(q, qr[0]);
+    assertEquals(Polynomial.ONE, qr[1]);
+    assertFalse(p.divideAndRemainder(Polynomial.ZERO).isPresent());
+    assertEquals(p, pq.gcd(p.multiply(p)));
+  }
+
+  @Test
+  public void testCountRoots() {
+    // (x - 1)^2 (x + 2)
+    Polynomial p = Polynomial.create(r(-1, 1), r(1, 1))
+                   .multiply(Polynomial.create(r(-1, 1), r(1, 1)))
+                   .multiply(Polynomial.create(r(2, 1), r(1, 1)));
+
+    assertEquals(2, p.countRoots(r(-10, 1), r(10, 1)));
+    assertEquals(1, p.countRoots(r(0, 1), r(1, 1)));
+    assertEquals(0, p.countRoots(r(1, 1), r(10, 1)));
+  }
+
+  @Test
+  public void testIsolateRoots() {
+    // x^3 - 2x has roots -sqrt(2), 0, sqrt(2)
+    Polynomial p = Polynomial.create(r(0, 1), r(-2, 1), r(0, 1), r(1, 1));
+    List<Polynomial.Interval> roots = p.isolateRoots();
+
+    assertEquals(3, roots.size());
+    for(Polynomial.Interval i : roots) {
+      assertEquals(1, p.countRoots(i.lo(), i.hi()));
+      assertTrue(p.evaluate(i.lo()).num().signum()
+                 * p.evaluate(i.hi()).num().signum() < 0);
+    }
+    assertTrue(roots.get(0).hi().compareTo(roots.get(1).lo()) <= 0);
+    assertTrue(roots.get(1).hi().compareTo(roots.get(2).lo()) <= 0);
+    assertTrue(Polynomial.create(r(1, 1), r(0, 1), r(1, 1))
+               .isolateRoots().isEmpty());
+  }
+
+  @Test
+  public void testRoots() {
+    Real two = new Real(r(2, 1));
+    Polynomial p = Polynomial.create(r(-2, 1), r(0, 1), r(1, 1));
+    List<Real> roots = p.roots();
+
+    assertEquals(2, roots.size());
+    checkInvariant(roots.get(1), 100);
+    checkClose(Real.sqrt(two).approx(100000), roots.get(1), 10000);
+    checkClose(Real.sqrt(two).negate().approx(100000), roots.get(0), 10000);
+
+    // Rational roots come out exactly
+    Polynomial q = Polynomial.create(r(-1, 4), r(0, 1), r(1, 1));
+    assertEquals(r(1, 2), q.roots().get(1).approx(1000000));
+  }
+}
@@ -0,0 +1,179 @@
+package numbers;
+
+import static org.junit.Assert.*;
+import static numbers.TestRationals.r;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class RationalArrayTest {
+
+  private static Rational big(BigInteger n, BigInteger d) {
+    return Rational.create(n, d).get();
+  }
+
+  private static final Rational HUGE =
+    big(BigInteger.ONE.shiftLeft(70), BigInteger.valueOf(3));
+
+  private static final Rational MAX =
+    big(BigInteger.valueOf(Long.MAX_VALUE),
+        BigInteger.valueOf(Long.MAX_VALUE - 1));
+
+  private static RationalArray random(int size, long seed) {
+    Random rand = new Random(seed);
+    RationalArray a = new RationalArray();
+    for(int i = 0; i < size; i++) {
+      if(i % 7 == 0) {
+        a.append(big(new BigInteger(90, rand), BigInteger.valueOf(i + 1)));
+      } else {
+        a.append(rand.nextInt(2001) - 1000, rand.nextInt(999) + 1);
+      }
+    }
+    return a;
+  }
+
+  @Test
+  public void testAppendAndGet() {
+    RationalArray a = new RationalArray(1);
+    a.append(r(1, 2));
+    a.append(HUGE);
+    a.append(6, -4);
+    a.append(Long.MIN_VALUE, 2);
+    a.append(MAX);
+
+    assertEquals(5, a.size());
+    assertEquals(r(1, 2), a.get(0));
+    assertEquals(HUGE, a.get(1));
+    assertEquals(r(-3, 2), a.get(2));
+    assertEquals(BigInteger.valueOf(-3), a.get(2).num());
+    assertEquals(big(BigInteger.valueOf(Long.MIN_VALUE / 2), BigInteger.ONE),
+                 a.get(3));
+    assertEquals(MAX, a.get(4));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testAppendZeroDenominator() {
+    new RationalArray().append(1, 0);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetOutOfBounds() {
+    new RationalArray().get(0);
+  }
+
+  @Test
+  public void testSet() {
+    RationalArray a = RationalArray.of(Arrays.asList(r(1, 3), HUGE, r(2, 1)));
+    a.set(0, HUGE);
+    a.set(1, r(5, 7));
+    a.set(2, HUGE.add(Rational.ONE));
+    assertEquals(HUGE, a.get(0));
+    assertEquals(r(5, 7), a.get(1));
+    assertEquals(HUGE.add(Rational.ONE), a.get(2));
+  }
+
+  @Test
+  public void testSetReusesOverflow() {
+    RationalArray a = RationalArray.of(Arrays.asList(HUGE, r(1, 2)));
+    for(int k = 0; k < 3; k++) {
+      a.set(0, r(k, 1));
+      a.set(0, HUGE.add(r(k, 1)));
+    }
+    assertEquals(1, a.overflowSlots());
+    assertEquals(HUGE.add(r(2, 1)), a.get(0));
+
+    // Freed slots go to whichever index needs one next
+    a.set(0, r(1, 3));
+    a.set(1, MAX);
+    assertEquals(1, a.overflowSlots());
+    assertEquals(Arrays.asList(r(1, 3), MAX), a.asList());
+  }
+
+  @Test
+  public void testAppendAll() {
+    RationalArray a = RationalArray.of(Arrays.asList(r(1, 3), HUGE));
+    RationalArray b = RationalArray.of(Arrays.asList(MAX, r(-2, 5)));
+    a.appendAll(b);
+    assertEquals(Arrays.asList(r(1, 3), HUGE, MAX, r(-2, 5)), a.asList());
+
+    a.appendAll(a);
+    assertEquals(Arrays.asList(r(1, 3), HUGE, MAX, r(-2, 5),
+                               r(1, 3), HUGE, MAX, r(-2, 5)), a.asList());
+  }
+
+  @Test
+  public void testAdd() {
+    RationalArray a = random(200, 1);
+    RationalArray b = random(200, 2);
+    RationalArray sum = a.add(b).get();
+    for(int i = 0; i < a.size(); i++) {
+      assertEquals(a.get(i).add(b.get(i)), sum.get(i));
+    }
+
+    RationalArray m = RationalArray.of(Arrays.asList(MAX, HUGE));
+    RationalArray mm = m.add(m).get();
+    assertEquals(MAX.add(MAX), mm.get(0));
+    assertEquals(HUGE.add(HUGE), mm.get(1));
+
+    assertFalse(a.add(new RationalArray()).isPresent());
+  }
+
+  @Test
+  public void testMultiply() {
+    RationalArray a = random(200, 3);
+    RationalArray b = random(200, 4);
+    RationalArray product = a.multiply(b).get();
+    for(int i = 0; i < a.size(); i++) {
+      assertEquals(a.get(i).multiply(b.get(i)), product.get(i));
+    }
+
+    RationalArray m = RationalArray.of(Arrays.asList(MAX, r(-1, 2)));
+    RationalArray mm = m.multiply(m).get();
+    assertEquals(MAX.multiply(MAX), mm.get(0));
+    assertEquals(r(1, 4), mm.get(1));
+
+    assertFalse(a.multiply(random(3, 5)).isPresent());
+  }
+
+  @Test
+  public void testDotAndSum() {
+    RationalArray a = random(300, 6);
+    RationalArray b = random(300, 7);
+    Rational dot = Rational.ZERO;
+    Rational sum = Rational.ZERO;
+    for(int i = 0; i < a.size(); i++) {
+      dot = dot.add(a.get(i).multiply(b.get(i)));
+      sum = sum.add(a.get(i));
+    }
+    assertEquals(dot, a.dot(b).get());
+    assertEquals(sum, a.sum());
+    assertEquals(Rational.ZERO, new RationalArray().sum());
+    assertFalse(a.dot(random(2, 8)).isPresent());
+
+    // Terms that cancel bring the sum back to longs
+    RationalArray c = RationalArray.of(Arrays.asList(HUGE, r(1, 2),
+                                                     HUGE.negate()));
+    assertEquals(r(1, 2), c.sum());
+  }
+
+  @Test
+  public void testAsList() {
+    List<Rational> rs = new ArrayList<>();
+    for(int i = 1; i <= 50; i++) rs.add(r(i, i + 1));
+    rs.add(HUGE);
+
+    RationalArray a = RationalArray.of(rs);
+    List<Rational> view = a.asList();
+    assertEquals(rs, view);
+
+    assertEquals(r(1, 2), view.set(0, HUGE));
+    assertEquals(HUGE, a.get(0));
+    view.add(r(7, 3));
+    assertEquals(52, a.size());
+    assertEquals(r(7, 3), a.get(51));
+  }
+}
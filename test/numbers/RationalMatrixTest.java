@@ -0,0 +1,145 @@
+package numbers;
+
+import static org.junit.Assert.*;
+import static numbers.TestRationals.r;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+public class RationalMatrixTest {
+
+  private static RationalMatrix random(int rows, int cols, long seed) {
+    Random rand = new Random(seed);
+    Rational[][] e = new Rational[rows][cols];
+    for(int i = 0; i < rows; i++) {
+      for(int j = 0; j < cols; j++) {
+        e[i][j] = r(rand.nextInt(21) - 10, rand.nextInt(9) + 1);
+      }
+    }
+    return RationalMatrix.create(e).get();
+  }
+
+  @Test
+  public void testCreate() {
+    assertTrue(RationalMatrix.create(new Rational[][] {{Rational.ONE}})
+               .isPresent());
+    assertFalse(RationalMatrix.create(new Rational[0][0]).isPresent());
+    assertFalse(RationalMatrix.create(new Rational[][] {
+                                        {Rational.ONE, Rational.ONE},
+                                        {Rational.ONE}
+                                      }).isPresent());
+  }
+
+  @Test
+  public void testMultiply() {
+    RationalMatrix a = RationalMatrix.create(new Rational[][] {
+                                               {r(1, 2), r(2, 3)},
+                                               {r(-1, 1), r(3, 4)}
+                                             }).get();
+    RationalMatrix b = RationalMatrix.create(new Rational[][] {
+                                               {r(2, 1)},
+                                               {r(3, 1)}
+                                             }).get();
+    RationalMatrix ab = RationalMatrix.create(new Rational[][] {
+                                                {r(3, 1)},
+                                                {r(1, 4)}
+                                              }).get();
+
+    assertEquals(ab, a.multiply(b).get());
+    assertEquals(a, a.multiply(RationalMatrix.identity(2)).get());
+    assertEquals(a, RationalMatrix.identity(2).multiply(a).get());
+    assertFalse(b.multiply(b).isPresent());
+  }
+
+  @Test
+  public void testMultiplyLarge() {
+    // Big enough to be blocked and parallel
+    RationalMatrix a = random(70, 40, 1);
+    RationalMatrix b = random(40, 50, 2);
+    RationalMatrix ab = a.multiply(b).get();
+
+    for(int i = 0; i < a.rows(); i += 13) {
+      for(int j = 0; j < b.cols(); j += 7) {
+        Rational expected = Rational.ZERO;
+        for(int k = 0; k < a.cols(); k++) {
+          expected = expected.add(a.get(i, k).multiply(b.get(k, j)));
+        }
+        assertEquals(expected, ab.get(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testDeterminant() {
+    RationalMatrix a = RationalMatrix.create(new Rational[][] {
+                                               {r(1, 2), r(2, 3)},
+                                               {r(-1, 1), r(3, 4)}
+                                             }).get();
+    // Needs a row swap to find a pivot
+    RationalMatrix swap = RationalMatrix.create(new Rational[][] {
+                                                  {r(0, 1), r(1, 1)},
+                                                  {r(1, 1), r(0, 1)}
+                                                }).get();
+    RationalMatrix singular = RationalMatrix.create(new Rational[][] {
+                                                      {r(1, 3), r(2, 3)},
+                                                      {r(1, 2), r(1, 1)}
+                                                    }).get();
+
+    assertEquals(r(25, 24), a.determinant().get());
+    assertEquals(r(-1, 1), swap.determinant().get());
+    assertEquals(Rational.ZERO, singular.determinant().get());
+    assertEquals(Rational.ONE, RationalMatrix.identity(5).determinant().get());
+    assertFalse(random(2, 3, 0).determinant().isPresent());
+  }
+
+  @Test
+  public void testDeterminantProduct() {
+    RationalMatrix a = random(12, 12, 3);
+    RationalMatrix b = random(12, 12, 4);
+
+    assertEquals(a.determinant().get().multiply(b.determinant().get()),
+                 a.multiply(b).get().determinant().get());
+  }
+
+  @Test
+  public void testSolve() {
+    RationalMatrix a = random(20, 20, 5);
+    Rational[] b = new Rational[20];
+    for(int i = 0; i < b.length; i++) b[i] = r(i - 7, i + 1);
+
+    Rational[] x = a.solve(b).get();
+    for(int i = 0; i < a.rows(); i++) {
+      Rational lhs = Rational.ZERO;
+      for(int j = 0; j < a.cols(); j++) {
+        lhs = lhs.add(a.get(i, j).multiply(x[j]));
+      }
+      assertEquals(b[i], lhs);
+    }
+
+    RationalMatrix singular = RationalMatrix.create(new Rational[][] {
+                                                      {r(1, 3), r(2, 3)},
+                                                      {r(1, 2), r(1, 1)}
+                                                    }).get();
+    assertFalse(singular.solve(new Rational[] {r(1, 1), r(1, 1)})
+                .isPresent());
+    assertFalse(a.solve(new Rational[] {Rational.ONE}).isPresent());
+  }
+
+  @Test
+  public void testSolveLarge() {
+    // Big enough for the elimination to run in parallel
+    RationalMatrix a = random(70, 70, 6);
+    Rational[] b = new Rational[70];
+    for(int i = 0; i < b.length; i++) {
+      b[i] = Rational.create(BigInteger.valueOf(i), BigInteger.ONE).get();
+    }
+
+    Rational[] x = a.solve(b).get();
+    Rational lhs = Rational.ZERO;
+    for(int j = 0; j < a.cols(); j++) {
+      lhs = lhs.add(a.get(69, j).multiply(x[j]));
+    }
+    assertEquals(b[69], lhs);
+  }
+}
@@ -0,0 +1,114 @@
+package numbers;
+
+import static org.junit.Assert.*;
+import static numbers.TestRationals.r;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class RationalParserTest {
+
+  private static String column(int count, long seed) {
+    Random rand = new Random(seed);
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < count; i++) {
+      switch(i % 4) {
+      case 0:
+        sb.append(rand.nextInt(2000) - 1000);
+        break;
+      case 1:
+        sb.append(rand.nextDouble() * 1000);
+        break;
+      case 2:
+        sb.append(new BigInteger(100, rand)).append('.')
+        .append(rand.nextInt(1000));
+        break;
+      default:
+        sb.append(rand.nextInt(100)).append("e-").append(rand.nextInt(30));
+      }
+      sb.append(i % 10 == 9 ? "\n" : ", ");
+    }
+    return sb.toString();
+  }
+
+  private static void checkColumn(String s, RationalArray a) {
+    String[] tokens = s.trim().split("[,\\s]+");
+    assertEquals(tokens.length, a.size());
+    for(int i = 0; i < tokens.length; i++) {
+      BigDecimal expected = new BigDecimal(tokens[i]);
+      assertEquals(0, expected.compareTo(a.get(i).decimalValue(
+                                            Math.max(expected.scale(), 0))));
+    }
+  }
+
+  @Test
+  public void testParse() {
+    assertEquals(r(-1, 8), RationalParser.parse("-0.125").get());
+    assertEquals(r(100, 1), RationalParser.parse("1E+2").get());
+    assertEquals(r(0, 1), RationalParser.parse("-0.000e5").get());
+    assertFalse(RationalParser.parse("1e99999999999").isPresent());
+    assertEquals(r(0, 1), RationalParser.parse("0e99999999").get());
+    assertEquals(r(0, 1), RationalParser.parse("-0.0e-99999999999").get());
+    assertFalse(RationalParser.parse("1 2").isPresent());
+  }
+
+  @Test
+  public void testParseAll() {
+    RationalArray a = RationalParser.parseAll(" 1, 2.5;-3e1\n\t.25 ").get();
+    assertEquals(Arrays.asList(r(1, 1), r(5, 2), r(-30, 1), r(1, 4)),
+                 a.asList());
+    assertEquals(0, RationalParser.parseAll(" ,\n").get().size());
+    assertFalse(RationalParser.parseAll("1, 2, x, 4").isPresent());
+
+    String s = column(1000, 1);
+    checkColumn(s, RationalParser.parseAll(s).get());
+  }
+
+  @Test
+  public void testParseAllBuffer() {
+    String s = column(500, 2);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(s.length() + 4);
+    buffer.put("xyz ".getBytes(StandardCharsets.US_ASCII));
+    buffer.put(s.getBytes(StandardCharsets.US_ASCII));
+    buffer.flip();
+    buffer.position(4);
+
+    checkColumn(s, RationalParser.parseAll(buffer).get());
+    assertEquals(4, buffer.position());
+  }
+
+  @Test
+  public void testParallelParseAll() {
+    // Several chunks, so numbers straddle the nominal chunk boundaries
+    String s = column(150000, 3);
+    RationalArray parallel = RationalParser.parallelParseAll(s).get();
+    assertEquals(RationalParser.parseAll(s).get().asList(), parallel.asList());
+
+    ByteBuffer buffer =
+      ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    assertEquals(parallel.asList(),
+                 RationalParser.parallelParseAll(buffer).get().asList());
+
+    assertFalse(RationalParser.parallelParseAll(s + " 1..2").isPresent());
+  }
+
+  @Test
+  public void testParseFile() throws IOException {
+    String s = column(2000, 4);
+    Path path = Files.createTempFile("rationals", ".txt");
+    try {
+      Files.write(path, s.getBytes(StandardCharsets.US_ASCII));
+      checkColumn(s, RationalParser.parseFile(path).get());
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
@@ -3,6 +3,7 @@ package numbers;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.math.BigDecimal;
 import java.math.BigInteger;
 
 public class RationalTest {
@@ -111,4 +112,79 @@ public class RationalTest {
 
     assertFalse(Rational.ONE.divide(Rational.ZERO).isPresent());
   }
+
+  @Test
+  public void testDecimalValue() {
+    Rational third = Rational.create(1, 3).get();
+    Rational half = Rational.create(-1, 2).get();
+
+    assertEquals(new BigDecimal("0.333"), third.decimalValue(3));
+    assertEquals(new BigDecimal("-0.5"), half.decimalValue(1));
+    assertEquals(new BigDecimal("-1"), half.decimalValue(0));
+    assertEquals(new BigDecimal("0.667"), third.add(third).decimalValue(3));
+
+    Rational r = Rational.create(12345, 7).get();
+    assertEquals(new BigDecimal("1.8E+3"), r.decimalValue(-2));
+    assertEquals(new BigDecimal("-2E+3"), r.negate().decimalValue(-3));
+    assertEquals(new BigDecimal("0E+5"), r.decimalValue(-5));
+  }
+
+  @Test
+  public void testFromDouble() {
+    assertEquals(Rational.create(1, 2).get(), Rational.fromDouble(0.5).get());
+    assertEquals(Rational.create(-3, 1).get(),
+                 Rational.fromDouble(-3.0).get());
+    assertEquals(Rational.ZERO, Rational.fromDouble(-0.0).get());
+
+    // 0.1 is not exactly representable
+    Rational tenth = Rational.fromDouble(0.1).get();
+    assertEquals(BigInteger.ONE.shiftLeft(55), tenth.den());
+    assertEquals(new BigDecimal(0.1), tenth.decimalValue(55));
+
+    Rational min = Rational.fromDouble(Double.MIN_VALUE).get();
+    assertEquals(BigInteger.ONE.shiftLeft(1074), min.den());
+    Rational max = Rational.fromDouble(Double.MAX_VALUE).get();
+    assertEquals(new BigDecimal(Double.MAX_VALUE).toBigInteger(), max.num());
+
+    assertFalse(Rational.fromDouble(Double.NaN).isPresent());
+    assertFalse(Rational.fromDouble(Double.POSITIVE_INFINITY).isPresent());
+  }
+
+  @Test
+  public void testParse() {
+    assertEquals(Rational.create(-25, 2).get(),
+                 Rational.parse("-12.5").get());
+    assertEquals(Rational.create(1, 10).get(), Rational.parse("0.1").get());
+    assertEquals(Rational.create(3, 1000).get(), Rational.parse("3e-3").get());
+    assertEquals(Rational.create(1, 2).get(), Rational.parse(".5").get());
+    assertEquals(Rational.create(7, 1).get(), Rational.parse("+7.").get());
+    assertEquals(new BigInteger("602000000000000000000000"),
+                 Rational.parse("6.02E23").get().num());
+
+    String digits = "123456789012345678901234567890.0625";
+    assertEquals(new BigDecimal(digits).setScale(4),
+                 Rational.parse(digits).get().decimalValue(4));
+
+    assertFalse(Rational.parse("").isPresent());
+    assertFalse(Rational.parse("-").isPresent());
+    assertFalse(Rational.parse("1.2.3").isPresent());
+    assertFalse(Rational.parse("1e").isPresent());
+    assertFalse(Rational.parse("12a").isPresent());
+  }
+
+  @Test
+  public void testRoundToBits() {
+    Rational third = Rational.create(1, 3).get();
+    assertEquals(Rational.create(3, 8).get(), third.roundToBits(3));
+    assertEquals(Rational.create(-3, 8).get(),
+                 third.negate().roundToBits(3));
+    assertEquals(BigInteger.valueOf(8), third.roundToBits(3).den());
+    assertEquals(Rational.create(1, 2).get(),
+                 Rational.create(2, 4).get().roundToBits(5));
+    assertEquals(BigInteger.valueOf(2),
+                 Rational.create(2, 4).get().roundToBits(5).den());
+    assertEquals(Rational.ZERO, Rational.create(1, 100).get().roundToBits(3));
+    assertEquals(Rational.create(7, 1).get(),
+                 Rational.create(13, 2).get().roundToBits(0));
+  }
 }
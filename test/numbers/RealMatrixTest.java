@@ -0,0 +1,104 @@
+package numbers;
+
+import static org.junit.Assert.*;
+import static numbers.TestRationals.r;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RealMatrixTest {
+
+  private static void checkEntry(Real expected, Real actual, int tolerance) {
+    for(int n = 1; n < tolerance; n++) {
+      Rational bound = Rational.create(2, n).get();
+      assertTrue(expected.approx(n).subtract(actual.approx(n)).abs()
+                 .compareTo(bound) <= 0);
+    }
+  }
+
+  @Test
+  public void testCreate() {
+    Real two = new Real(r(2, 1));
+
+    assertTrue(RealMatrix.create(new Real[][] {{two}}).isPresent());
+    assertFalse(RealMatrix.create(new Real[0][0]).isPresent());
+    assertFalse(RealMatrix.create(new Real[][] {{two, two}, {two}})
+                .isPresent());
+  }
+
+  @Test
+  public void testApprox() {
+    Real two = new Real(r(2, 1));
+    RealMatrix m = RealMatrix.create(new Real[][] {
+                                       {Real.sqrt(two), Real.ONE},
+                                       {two, Real.ZERO}
+                                     }).get();
+
+    assertEquals(Real.sqrt(two).approx(100), m.approx(100).get(0, 0));
+    assertEquals(r(2, 1), m.approx(100).get(1, 0));
+    checkEntry(Real.sqrt(two), m.get(0, 0), 100);
+  }
+
+  @Test
+  public void testGet() {
+    AtomicInteger evaluated = new AtomicInteger();
+    Real counted = new Real(n -> {
+      evaluated.incrementAndGet();
+      return Rational.ONE;
+    });
+    Real[][] entries = new Real[8][8];
+    for(Real[] row : entries) Arrays.fill(row, counted);
+    RealMatrix m = RealMatrix.create(entries).get();
+    RealMatrix mm = m.multiply(m).get().add(m).get();
+
+    // Only the entries that (i, j) depends on are approximated
+    evaluated.set(0);
+    assertEquals(r(9, 1), mm.get(2, 3).approx(1000).lowestTerms());
+    assertEquals(17, evaluated.get());
+  }
+
+  @Test
+  public void testAdd() {
+    Real two = new Real(r(2, 1));
+    RealMatrix m = RealMatrix.create(new Real[][] {{Real.sqrt(two), two}})
+                   .get();
+    RealMatrix sum = m.add(m).get();
+
+    checkEntry(Real.sqrt(two).add(Real.sqrt(two)), sum.get(0, 0), 100);
+    assertFalse(m.add(new RealMatrix(RationalMatrix.identity(2)))
+                .isPresent());
+  }
+
+  @Test
+  public void testMultiply() {
+    Real two = new Real(r(2, 1));
+    Real half = new Real(r(1, 2));
+    RealMatrix a = RealMatrix.create(new Real[][] {
+                                       {Real.sqrt(two), half},
+                                       {two.negate(), Real.ONE}
+                                     }).get();
+    RealMatrix b = RealMatrix.create(new Real[][] {
+                                       {Real.sqrt(two)},
+                                       {two}
+                                     }).get();
+    RealMatrix ab = a.multiply(b).get();
+
+    assertEquals(2, ab.rows());
+    assertEquals(1, ab.cols());
+    checkEntry(new Real(r(3, 1)), ab.get(0, 0), 100);
+    checkEntry(Real.sqrt(two).multiply(two.negate()).add(two),
+               ab.get(1, 0), 100);
+
+    // Approximations are rounded like those of Real operations
+    BigInteger n = BigInteger.TEN.pow(20);
+    RealMatrix third = new RealMatrix(RationalMatrix.create(
+                                        new Rational[][] {{r(1, 3)}}).get());
+    RealMatrix c = RealMatrix.create(new Real[][] {{Real.E}}).get()
+                   .multiply(third).get().add(third).get();
+    assertTrue(c.approx(n).get(0, 0).den().bitLength() <= n.bitLength() + 4);
+    assertTrue(c.get(0, 0).approx(n).den().bitLength() <= n.bitLength() + 4);
+    assertFalse(b.multiply(b).isPresent());
+  }
+}
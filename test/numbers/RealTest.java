@@ -5,6 +5,17 @@ import org.junit.Test;
 import org.junit.Ignore;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class RealTest {
 
@@ -81,6 +92,13 @@ public class RealTest {
     assertEquals(Real.ONE.approx(1), Real.ONE.inverse().approx(1));
     assertEquals(two.approx(1), two.inverse().inverse().approx(1));
     assertEquals(two.approx(1), half.inverse().approx(1));
+
+    try {
+      Real.ZERO.inverse();
+      fail("inverse of an exact zero");
+    } catch(ArithmeticException e) {
+      // expected
+    }
   }
 
   @Test
@@ -102,6 +120,16 @@ public class RealTest {
     checkInvariant(Real.sqrt(Real.ONE), 100);
     checkInvariant(Real.sqrt(two), 100);
     checkInvariant(Real.sqrt(Real.sqrt(two)), 100);
+
+    for(int i = 0; i < 200; i++) {
+      BigInteger x = BigInteger.valueOf(i);
+      BigInteger r = Real.isqrt(x);
+      assertTrue(r.multiply(r).compareTo(x) <= 0);
+      assertTrue(r.add(BigInteger.ONE).pow(2).compareTo(x) > 0);
+    }
+    BigInteger huge = BigInteger.ONE.shiftLeft(100000).subtract(BigInteger.ONE);
+    assertEquals(BigInteger.ONE.shiftLeft(50000).subtract(BigInteger.ONE),
+                 Real.isqrt(huge));
   }
 
   @Test
@@ -127,4 +155,185 @@ public class RealTest {
     checkInvariant(Real.exp(Real.ONE), 10, 50);
     checkInvariant(Real.exp(two), 10, 50);
   }
+
+  @Test
+  public void testApproxSize() {
+    Real two = new Real(Rational.create(2, 1).get());
+    BigInteger n = BigInteger.TEN.pow(30);
+    List<Real> reals = Arrays.asList(Real.E, Real.cos(two),
+                                     Real.sqrt(two).multiply(Real.E),
+                                     Real.sqrt(two).inverse(),
+                                     Real.exp(two).add(Real.sqrt(two)));
+    for(Real r : reals) {
+      assertTrue(r.approx(n).den().bitLength() <= n.bitLength() + 4);
+    }
+
+    Rational e = Rational.parse("2.718281828459045235360287471352662").get();
+    assertTrue(Real.E.approx(n).subtract(e).abs()
+               .compareTo(Rational.create(BigInteger.ONE, n).get()) <= 0);
+  }
+
+  @Test
+  public void testSum() {
+    Real two = new Real(Rational.create(2, 1).get());
+    List<Real> terms = new ArrayList<>();
+    for(int i = 0; i < 64; i++) terms.add(Real.sqrt(two));
+    Real sixtyFour = new Real(Rational.create(64, 1).get());
+
+    checkInvariant(Real.sum(terms), 50);
+    checkInvariant(Real.parallelSum(terms), 50);
+    assertTrue(Real.sum(terms).approx(1000)
+               .subtract(Real.sqrt(two).multiply(sixtyFour).approx(1000))
+               .abs().compareTo(Rational.create(2, 1000).get()) <= 0);
+    assertEquals(Rational.ZERO, Real.sum(Collections.emptyList()).approx(1));
+  }
+
+  @Test
+  public void testProduct() {
+    Real two = new Real(Rational.create(2, 1).get());
+    Real half = new Real(Rational.create(1, 2).get());
+    List<Real> factors = new ArrayList<>();
+    for(int i = 0; i < 20; i++) factors.add(Real.sqrt(two));
+    Real twoToTheTen = new Real(Rational.create(1024, 1).get());
+
+    checkInvariant(Real.product(Arrays.asList(two, half, Real.sqrt(two))),
+                   100);
+    checkInvariant(Real.parallelProduct(factors), 50);
+    assertTrue(Real.product(factors).approx(1000)
+               .subtract(twoToTheTen.approx(1000))
+               .abs().compareTo(Rational.create(1, 1000).get()) <= 0);
+    assertEquals(Rational.ONE,
+                 Real.product(Collections.emptyList()).approx(1));
+  }
+
+  @Test
+  public void testDeepChain() {
+    Real two = new Real(Rational.create(2, 1).get());
+    Real root = Real.sqrt(two);
+    Real x = Real.ZERO;
+    for(int i = 0; i < 10000; i++) x = x.add(root);
+
+    Rational expected = root.approx(1000000)
+                        .multiply(Rational.create(10000, 1).get());
+    assertTrue(x.approx(10).subtract(expected)
+               .abs().compareTo(Rational.create(1, 5).get()) <= 0);
+
+    Real y = Real.ONE;
+    for(int i = 0; i < 500; i++) y = y.multiply(root);
+    Rational twoToThe250 =
+      Rational.create(BigInteger.ONE.shiftLeft(250), BigInteger.ONE).get();
+    assertTrue(y.approx(1).subtract(twoToThe250)
+               .abs().compareTo(Rational.ONE) <= 0);
+  }
+
+  @Test
+  public void testDeepFunctionChain() {
+    // Iterating cos converges to the root of cos(x) = x, near 0.7390851
+    Real x = Real.ONE;
+    for(int i = 0; i < 10000; i++) x = Real.cos(x);
+    Rational fixedPoint = Rational.create(7390851, 10000000).get();
+    assertTrue(x.approx(10).subtract(fixedPoint)
+               .abs().compareTo(Rational.create(1, 9).get()) <= 0);
+
+    Real y = Real.ONE;
+    for(int i = 0; i < 3000; i++) y = Real.sqrt(y.add(Real.ONE));
+    Real phi = Real.sqrt(new Real(Rational.create(5, 4).get()))
+               .add(new Real(Rational.create(1, 2).get()));
+    assertTrue(y.approx(10).subtract(phi.approx(1000))
+               .abs().compareTo(Rational.create(1, 9).get()) <= 0);
+  }
+
+  @Test
+  public void testLinearChain() {
+    Real two = new Real(Rational.create(2, 1).get());
+    Real x = Real.sqrt(two);
+    for(int i = 0; i < 1000000; i++) x = x.add(Real.ONE).negate();
+
+    // Each pair of steps maps x back to x: -(-(x + 1) + 1) = x
+    checkInvariant(x, 100);
+    assertTrue(x.approx(1000).subtract(Real.sqrt(two).approx(1000))
+               .abs().compareTo(Rational.create(2, 1000).get()) <= 0);
+  }
+
+  @Test
+  public void testApproxAsync() throws Exception {
+    Real two = new Real(Rational.create(2, 1).get());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      assertEquals(Real.sqrt(two).approx(100),
+                   Real.sqrt(two).approxAsync(100, executor).get());
+      assertEquals(Real.exp(two).approx(30),
+                   Real.exp(two).approxAsync(30, executor).get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testApproxAsyncCancel() throws Exception {
+    Real two = new Real(Rational.create(2, 1).get());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      CompletableFuture<Rational> slow =
+        Real.exp(two).approxAsync(BigInteger.TEN.pow(100000), executor);
+      Thread.sleep(50);
+      assertTrue(slow.cancel(true));
+      assertTrue(slow.isCancelled());
+
+      // The worker has to be released for this to finish
+      assertEquals(Rational.ONE,
+                   Real.ONE.approxAsync(1, executor).get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testApproxAsyncRejected() throws Exception {
+    CompletableFuture<Rational> rejected = Real.ONE.approxAsync(1, task -> {
+      throw new RejectedExecutionException();
+    });
+    try {
+      rejected.get();
+      fail();
+    } catch(ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+  }
+
+  @Test
+  public void testApproxInterrupted() {
+    // Only asynchronous approximations can be cancelled
+    Thread.currentThread().interrupt();
+    try {
+      assertEquals(Real.E.approx(1000), Real.E.approx(1000));
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  public void testApproxAsyncCancelParallel() throws Exception {
+    Real two = new Real(Rational.create(2, 1).get());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    List<Real> terms = new ArrayList<>();
+    int threads = ForkJoinPool.commonPool().getParallelism() + 1;
+    for(int i = 0; i < threads; i++) terms.add(Real.exp(two));
+
+    try {
+      CompletableFuture<Rational> slow =
+        Real.parallelSum(terms)
+        .approxAsync(BigInteger.TEN.pow(100000), executor);
+      Thread.sleep(50);
+      assertTrue(slow.cancel(true));
+
+      // The terms running on the common pool have to stop as well
+      assertTrue(ForkJoinPool.commonPool()
+                 .awaitQuiescence(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
@@ -0,0 +1,25 @@
+package numbers;
+
+/**
+ * Shorthands shared by the tests.
+ *
+ * @author Harrison Goldstein
+ */
+final class TestRationals {
+
+  private TestRationals() {
+  }
+
+  /**
+   * Shorthand for small rationals.
+   *
+   * @param n
+   *          numerator
+   * @param d
+   *          nonzero denominator
+   * @return n / d
+   */
+  static Rational r(int n, int d) {
+    return Rational.create(n, d).get();
+  }
+}